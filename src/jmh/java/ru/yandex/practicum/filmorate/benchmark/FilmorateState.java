@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dao.event.EventDao;
+import ru.yandex.practicum.filmorate.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.dao.likes.LikesDao;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.dataset.DatasetSpec;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Seeds an in-memory H2 database with {@link #size} users and films from {@link DatasetGenerator} and starts
+ * the application on it on a random port. Run with {@code -p size=1000,100000,1000000} to compare dataset sizes.
+ */
+@State(Scope.Benchmark)
+public class FilmorateState {
+
+    @Param({"1000"})
+    public int size;
+
+    FilmDao filmDao;
+    LikesDao likesDao;
+    EventDao eventDao;
+    FilmService filmService;
+    UserService userService;
+    RecommendationService recommendationService;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = "jdbc:h2:mem:filmorate-" + size + ";DB_CLOSE_DELAY=-1";
+        DataSource dataSource = new DriverManagerDataSource(url, "sa", "password");
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection,
+                    new EncodedResource(new ClassPathResource("schema.sql"), StandardCharsets.UTF_8));
+            ScriptUtils.executeSqlScript(connection,
+                    new EncodedResource(new ClassPathResource("data.sql"), StandardCharsets.UTF_8));
+        }
+        DatasetSpec spec = new DatasetSpec();
+        spec.setUsers(size);
+        spec.setFilms(size);
+        spec.setDirectors(Math.max(1, size / 10));
+        new DatasetGenerator(new JdbcTemplate(dataSource)).generate(spec);
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.sql.init.encoding=UTF-8",
+                        "--server.port=0",
+                        "--logging.level.root=WARN",
+                        "--logging.level.ru.yandex.practicum.filmorate=WARN");
+        filmDao = context.getBean(FilmDao.class);
+        likesDao = context.getBean(LikesDao.class);
+        eventDao = context.getBean(EventDao.class);
+        filmService = context.getBean(FilmService.class);
+        userService = context.getBean(UserService.class);
+        recommendationService = context.getBean(RecommendationService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+}
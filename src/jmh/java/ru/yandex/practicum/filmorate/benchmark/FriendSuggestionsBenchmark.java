@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.dao.user.FriendGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranks suggestions for a user whose friends have {@code friendsPerFriend} friends each, drawn from
+ * {@code population} users, so the two-hop neighbourhood reaches a million edges without the rest of the
+ * application. Suggestions are computed on every call, bypassing the per-user cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FriendSuggestionsBenchmark {
+
+    @Benchmark
+    public long[] suggest(GraphState state) {
+        return state.graph.suggest(0, 10);
+    }
+
+    @State(Scope.Benchmark)
+    public static class GraphState {
+
+        @Param({"100", "1000"})
+        public int friendsOfUser;
+
+        @Param({"100", "1000"})
+        public int friendsPerFriend;
+
+        @Param({"1000000"})
+        public int population;
+
+        FriendGraph graph;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            String url = "jdbc:h2:mem:graph-" + friendsOfUser + "-" + friendsPerFriend + ";DB_CLOSE_DELAY=-1";
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url, "sa", "password"));
+            jdbcTemplate.execute("CREATE TABLE user_friend (user_id BIGINT, friend_id BIGINT, " +
+                    "PRIMARY KEY (user_id, friend_id))");
+            Random random = new Random(42);
+            List<Object[]> edges = new ArrayList<>();
+            for (long friendId = 1; friendId <= friendsOfUser; friendId++) {
+                edges.add(new Object[]{0L, friendId});
+                for (int i = 0; i < friendsPerFriend; i++) {
+                    edges.add(new Object[]{friendId, 1L + random.nextInt(population)});
+                }
+            }
+            jdbcTemplate.batchUpdate("MERGE INTO user_friend(user_id, friend_id) VALUES (?, ?)", edges);
+            graph = new FriendGraph(jdbcTemplate);
+            graph.load();
+            jdbcTemplate.execute("DROP TABLE user_friend");
+        }
+    }
+}
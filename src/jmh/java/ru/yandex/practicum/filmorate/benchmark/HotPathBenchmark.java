@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HotPathBenchmark {
+    private static final List<String> SEARCH_FIELDS = List.of("title", "director");
+
+    @Benchmark
+    public List<Film> findAllFilms(FilmorateState state) {
+        return state.filmDao.findAll();
+    }
+
+    @Benchmark
+    public List<Film> getPopular(FilmorateState state) {
+        return state.likesDao.getPopular(null, null, 10);
+    }
+
+    @Benchmark
+    public List<Film> search(FilmorateState state) {
+        return state.filmService.search("ab", SEARCH_FIELDS, 0, 20);
+    }
+
+    @Benchmark
+    public List<Film> getRecommendations(FilmorateState state) {
+        return state.recommendationService.getRecommendations(state.randomId());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(FilmorateState state) {
+        return state.userService.getCommonFriends(state.randomId(), state.randomId());
+    }
+
+    @Benchmark
+    public List<User> getFriendSuggestions(FilmorateState state) {
+        return state.userService.getFriendSuggestions(state.randomId(), 10);
+    }
+
+    @Benchmark
+    public List<Event> getFeedPage(FilmorateState state) {
+        return state.eventDao.getFeedPage(state.randomId(), Long.MAX_VALUE, 100);
+    }
+}
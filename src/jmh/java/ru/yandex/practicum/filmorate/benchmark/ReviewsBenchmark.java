@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import ru.yandex.practicum.filmorate.dao.review.ReviewDao;
+import ru.yandex.practicum.filmorate.dao.review.ReviewDaoImpl;
+import ru.yandex.practicum.filmorate.dao.review.ReviewLeaderboard;
+import ru.yandex.practicum.filmorate.dataset.DatasetGenerator;
+import ru.yandex.practicum.filmorate.dataset.DatasetSpec;
+import ru.yandex.practicum.filmorate.model.Review;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the most useful reviews while the number of votes per review grows. Run with
+ * {@code -p votesPerReview=10,100,1000}; latency should stay flat since usefulness is stored with the review.
+ * {@code leaderboardSize=0} reads every page from the database, otherwise pages come from {@link ReviewLeaderboard}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReviewsBenchmark {
+
+    @Benchmark
+    public List<Review> findByFilmId(ReviewsState state) {
+        return state.reviewDao.findByFilmId(1L, 10);
+    }
+
+    @Benchmark
+    public List<Review> findTop(ReviewsState state) {
+        return state.reviewDao.findByFilmId(null, 10);
+    }
+
+    @State(Scope.Benchmark)
+    public static class ReviewsState {
+
+        @Param({"10", "100", "1000"})
+        public int votesPerReview;
+
+        @Param({"2000"})
+        public int users;
+
+        @Param({"0", "100"})
+        public int leaderboardSize;
+
+        ReviewDao reviewDao;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            String url = "jdbc:h2:mem:reviews-" + votesPerReview + "-" + leaderboardSize + ";DB_CLOSE_DELAY=-1";
+            DataSource dataSource = new SingleConnectionDataSource(url, "sa", "password", true);
+            Connection connection = dataSource.getConnection();
+            ScriptUtils.executeSqlScript(connection,
+                    new EncodedResource(new ClassPathResource("schema.sql"), StandardCharsets.UTF_8));
+            ScriptUtils.executeSqlScript(connection,
+                    new EncodedResource(new ClassPathResource("data.sql"), StandardCharsets.UTF_8));
+            DatasetSpec spec = new DatasetSpec();
+            spec.setUsers(users);
+            spec.setFilms(users / 10);
+            spec.setVotesPerReview(votesPerReview);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            new DatasetGenerator(jdbcTemplate).generate(spec);
+            reviewDao = new ReviewDaoImpl(jdbcTemplate,
+                    new ReviewLeaderboard(jdbcTemplate, new SimpleMeterRegistry(), leaderboardSize, 10000), 500);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one access log line per sampled request with its status and duration. Server errors are
+ * always logged. The payload is written as a JSON string, so line breaks and quotes in a request body
+ * cannot split or forge log lines. The log goes to the {@code ru.yandex.practicum.filmorate.access} logger, which
+ * {@code logback-spring.xml} routes through a non-blocking async appender.
+ */
+public class AccessLogFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger("ru.yandex.practicum.filmorate.access");
+
+    private final double sampleRate;
+    private final int maxPayloadLength;
+
+    public AccessLogFilter(double sampleRate, int maxPayloadLength) {
+        this.sampleRate = sampleRate;
+        this.maxPayloadLength = maxPayloadLength;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!log.isInfoEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        boolean sampled = sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        HttpServletRequest loggedRequest = sampled && maxPayloadLength > 0
+                ? new ContentCachingRequestWrapper(request, maxPayloadLength) : request;
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(loggedRequest, response);
+        } finally {
+            int status = response.getStatus();
+            if (sampled || status >= 500) {
+                long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                log.info("method={} uri={} query={} status={} durationMs={} payload={}",
+                        request.getMethod(), request.getRequestURI(), request.getQueryString(), status,
+                        durationMs, payload(loggedRequest));
+            }
+        }
+    }
+
+    private String payload(HttpServletRequest request) {
+        if (!(request instanceof ContentCachingRequestWrapper)) {
+            return null;
+        }
+        byte[] content = ((ContentCachingRequestWrapper) request).getContentAsByteArray();
+        if (content.length == 0) {
+            return null;
+        }
+        Charset charset = request.getCharacterEncoding() == null
+                ? StandardCharsets.UTF_8 : Charset.forName(request.getCharacterEncoding());
+        String payload = new String(content, 0, Math.min(content.length, maxPayloadLength), charset);
+        return '"' + new String(JsonStringEncoder.getInstance().quoteAsString(payload)) + '"';
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AccessLogFilterConfig {
+
+    @Bean
+    public AccessLogFilter accessLogFilter(@Value("${filmorate.access-log.sample-rate:0.1}") double sampleRate,
+                                           @Value("${filmorate.access-log.max-payload-length:1000}")
+                                           int maxPayloadLength) {
+        return new AccessLogFilter(sampleRate, maxPayloadLength);
+    }
+
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches of reference data. The caches are created by Caffeine from {@code spring.cache.*} properties
+ * and their hit and miss counts are published as {@code cache.gets} metrics.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String GENRES = "genres";
+    public static final String ALL_GENRES = "allGenres";
+    public static final String MPA = "mpa";
+    public static final String ALL_MPA = "allMpa";
+    public static final String DIRECTORS = "directors";
+    public static final String ALL_DIRECTORS = "allDirectors";
+}
@@ -1,30 +0,0 @@
-package ru.yandex.practicum.filmorate.config;
-
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.web.filter.CommonsRequestLoggingFilter;
-
-import javax.servlet.http.HttpServletRequest;
-
-@Configuration
-public class RequestLoggingFilterConfig {
-
-    @Bean
-    public CommonsRequestLoggingFilter logFilter() {
-
-        CommonsRequestLoggingFilter filter = new CommonsRequestLoggingFilter() {
-            @Override
-            protected void beforeRequest(HttpServletRequest request, String message) {
-                //Prevent double logging
-            }
-        };
-
-        filter.setIncludeQueryString(true);
-        filter.setIncludePayload(true);
-        filter.setMaxPayloadLength(10000);
-        filter.setIncludeHeaders(false);
-        filter.setAfterMessagePrefix("REQUEST DATA : ");
-        return filter;
-    }
-
-}
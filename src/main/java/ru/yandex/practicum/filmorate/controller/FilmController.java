@@ -1,17 +1,31 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.constraints.ValuesAllowed;
 import ru.yandex.practicum.filmorate.dto.FilmDto;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportReport;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,20 +37,76 @@ public class FilmController {
     private final FilmService filmService;
     private final ConversionService conversionService;
     private final FilmMapper filmMapper;
+    private final ObjectMapper objectMapper;
+    private final FilmImportService filmImportService;
 
-    public FilmController(FilmService filmService, ConversionService conversionService, FilmMapper filmMapper) {
+    public FilmController(FilmService filmService, ConversionService conversionService, FilmMapper filmMapper,
+                          ObjectMapper objectMapper, FilmImportService filmImportService) {
         this.filmService = filmService;
         this.conversionService = conversionService;
         this.filmMapper = filmMapper;
+        this.objectMapper = objectMapper;
+        this.filmImportService = filmImportService;
     }
 
     @GetMapping
-    public List<FilmDto> findAll() {
-        return filmService.findAll().stream()
+    public List<FilmDto> findAll(
+            @RequestParam(required = false) @PositiveOrZero Long after,
+            @RequestParam(required = false) @Positive @Max(1000) Integer limit
+    ) {
+        List<Film> films = after == null && limit == null
+                ? filmService.findAll()
+                : filmService.findPage(after == null ? 0 : after, limit == null ? 100 : limit);
+        return films.stream()
                 .map(film -> conversionService.convert(film, FilmDto.class))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Streams all films as one JSON array, or as newline delimited JSON when the client accepts
+     * {@code application/x-ndjson}, e.g. to feed the output back to {@link #importFilms(InputStream)}.
+     */
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll(
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+        boolean ndjson = accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+        ObjectWriter writer = objectMapper.writerFor(FilmDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                filmService.streamAll(film -> {
+                    try {
+                        writer.writeValue(generator, conversionService.convert(film, FilmDto.class));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                } else {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Imports films sent as newline delimited JSON, see {@link FilmImportService#importFilms(Reader)}.
+     */
+    @PostMapping(path = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public FilmImportReport importFilms(InputStream inputStream) throws IOException {
+        return filmImportService.importFilms(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
     @GetMapping("/{id}")
     public FilmDto findById(@PathVariable Long id) {
         Film film = filmService.findById(id);
@@ -102,8 +172,10 @@ public class FilmController {
     }
 
     @GetMapping("/search")
-    public List<FilmDto> search(@RequestParam String query, @RequestParam(name = "by") List<String> params) {
-        return filmService.search(query, params).stream()
+    public List<FilmDto> search(@RequestParam String query, @RequestParam(name = "by") List<String> params,
+                                @RequestParam(defaultValue = "0") @PositiveOrZero Integer offset,
+                                @RequestParam(defaultValue = "100") @Positive @Max(1000) Integer limit) {
+        return filmService.search(query, params, offset, limit).stream()
                 .map(film -> conversionService.convert(film, FilmDto.class))
                 .collect(Collectors.toList());
     }
@@ -2,17 +2,23 @@ package ru.yandex.practicum.filmorate.controller;
 
 import org.springframework.core.convert.ConversionService;
 import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.dto.ReviewDto;
+import ru.yandex.practicum.filmorate.dto.ReviewVoteDto;
 import ru.yandex.practicum.filmorate.mapper.ReviewMapper;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewVote;
 import ru.yandex.practicum.filmorate.service.ReviewService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import java.util.List;
 import java.util.stream.Collectors;
 
+@Validated
 @RestController
 @RequestMapping("/reviews")
 public class ReviewController {
@@ -66,6 +72,16 @@ public class ReviewController {
         reviewService.removeLike(id, userId, false);
     }
 
+    @PostMapping(path = "/votes:batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<ReviewVoteDto> addLikes(@RequestBody @NotEmpty @Size(max = 10000) List<@Valid ReviewVoteDto> votes) {
+        List<ReviewVote> reviewVotes = votes.stream()
+                .map(reviewMapper::mapToReviewVote)
+                .collect(Collectors.toList());
+        return reviewService.addLikes(reviewVotes).stream()
+                .map(vote -> conversionService.convert(vote, ReviewVoteDto.class))
+                .collect(Collectors.toList());
+    }
+
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     public ReviewDto create(@Valid @NotNull @RequestBody ReviewDto reviewDto) {
         Review review = reviewMapper.mapToReview(reviewDto);
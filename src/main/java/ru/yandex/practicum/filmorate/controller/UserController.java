@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.controller;
 
 import org.springframework.core.convert.ConversionService;
 import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.dto.EventDto;
 import ru.yandex.practicum.filmorate.dto.FilmDto;
@@ -12,10 +13,13 @@ import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
 import java.util.List;
 import java.util.stream.Collectors;
 
+@Validated
 @RestController
 @RequestMapping("/users")
 public class UserController {
@@ -60,12 +64,37 @@ public class UserController {
     }
 
     @GetMapping("{id}/feed")
-    public List<EventDto> getFeed(@PathVariable Long id) {
-        return userService.getFeed(id).stream()
+    public List<EventDto> getFeed(
+            @PathVariable Long id,
+            @RequestParam(required = false) @Positive Long before,
+            @RequestParam(defaultValue = "100") @Positive @Max(1000) Integer limit
+    ) {
+        return userService.getFeedPage(id, before, limit).stream()
                 .map(event -> conversionService.convert(event, EventDto.class))
                 .collect(Collectors.toList());
     }
 
+    @GetMapping("{id}/feed/friends")
+    public List<EventDto> getFriendsFeed(
+            @PathVariable Long id,
+            @RequestParam(required = false) @Positive Long before,
+            @RequestParam(defaultValue = "100") @Positive @Max(1000) Integer limit
+    ) {
+        return userService.getFriendsFeed(id, before, limit).stream()
+                .map(event -> conversionService.convert(event, EventDto.class))
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("{id}/friends/suggestions")
+    public List<UserDto> getFriendSuggestions(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") @Positive @Max(100) Integer limit
+    ) {
+        return userService.getFriendSuggestions(id, limit).stream()
+                .map(user -> conversionService.convert(user, UserDto.class))
+                .collect(Collectors.toList());
+    }
+
     @GetMapping("{id}/friends/common/{otherId}")
     public List<UserDto> getCommonFriends(@PathVariable Long id, @PathVariable Long otherId) {
         return userService.getCommonFriends(id, otherId).stream()
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.converter;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dto.ReviewVoteDto;
+import ru.yandex.practicum.filmorate.model.ReviewVote;
+
+@Component
+public class ReviewVoteToReviewVoteDto implements Converter<ReviewVote, ReviewVoteDto> {
+
+    @Override
+    public ReviewVoteDto convert(ReviewVote vote) {
+        ReviewVoteDto voteDto = new ReviewVoteDto();
+        voteDto.setReviewId(vote.getReviewId());
+        voteDto.setUserId(vote.getUserId());
+        voteDto.setIsLike(vote.getIsLike());
+        voteDto.setStatus(vote.getStatus());
+        return voteDto;
+    }
+}
@@ -2,8 +2,11 @@ package ru.yandex.practicum.filmorate.dao.director;
 
 import ru.yandex.practicum.filmorate.model.Director;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface DirectorDao {
 
@@ -13,10 +16,20 @@ public interface DirectorDao {
 
     List<Director> findByFilmId(Long id);
 
+    Map<Long, Set<Director>> findByFilmIds(Collection<Long> filmIds);
+
     List<Long> findFilmsIdByDirectorId(Long id, String sort);
 
     Director createDirector(Director director);
 
+    /**
+     * Returns directors with the given names, creating the missing ones.
+     *
+     * @param names of the directors.
+     * @return {@link Map} of directors by name.
+     */
+    Map<String, Director> findOrCreateByNames(Collection<String> names);
+
     Director updateDirector(Director director);
 
     boolean existsById(Long id);
@@ -3,19 +3,29 @@ package ru.yandex.practicum.filmorate.dao.director;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
+import ru.yandex.practicum.filmorate.dao.film.FilmCache;
+import ru.yandex.practicum.filmorate.dao.film.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.util.AfterCommit;
+import ru.yandex.practicum.filmorate.util.BatchInsert;
+import ru.yandex.practicum.filmorate.util.CachedLookup;
+import ru.yandex.practicum.filmorate.util.IdPresence;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Repository
 public class DirectorDaoImpl implements DirectorDao {
@@ -24,34 +34,56 @@ public class DirectorDaoImpl implements DirectorDao {
     private static final String SELECT_DIRECTOR_SQL = "SELECT * FROM director WHERE id = ?";
     private static final String SELECT_DIRECTOR_BY_FILM_ID = "SELECT d.* FROM director d "
             + "JOIN film_director fd ON fd.director_id = d.id WHERE fd.film_id = ?";
-    private static final String SELECT_FILMS_BY_DIRECTOR_ID_SORTED_LIKES = "SELECT film_id FROM "
-            + "(SELECT fd.film_id, COUNT(user_id) AS likes "
-            + "FROM FILM_DIRECTOR fd LEFT JOIN film_likes fl ON fd.film_id = fl.film_id "
-            + "WHERE fd.DIRECTOR_ID = ? GROUP BY fd.film_id ORDER BY likes DESC)";
+    private static final String SELECT_DIRECTORS_BY_IDS_SQL = "SELECT * FROM director WHERE id = ANY(?)";
+    private static final String SELECT_DIRECTOR_IDS_BY_FILMS_SQL = "SELECT film_id, director_id FROM film_director "
+            + "WHERE film_id = ANY(?)";
+    private static final String SELECT_FILM_IDS_BY_DIRECTOR_SQL = "SELECT film_id FROM film_director "
+            + "WHERE director_id = ?";
+    private static final String SELECT_FILMS_BY_DIRECTOR_ID_SORTED_LIKES = "SELECT fd.film_id "
+            + "FROM film_director fd JOIN film f ON fd.film_id = f.id WHERE fd.director_id = ? "
+            + "ORDER BY f.likes_count DESC";
     private static final String SELECT_FILMS_BY_DIRECTOR_ID_SORTED_DATE = "SELECT film_id FROM (SELECT * "
             + "FROM film_director fd JOIN film f ON fd.film_id = f.id WHERE director_id = ? ORDER BY release_date)";
     private static final String INSERT_DIRECTOR_SQL = "INSERT INTO director(name) VALUES(?)";
+    private static final String SELECT_DIRECTORS_BY_NAMES_SQL = "SELECT * FROM director WHERE name = ANY(?)";
     private static final String UPDATE_DIRECTOR_SQL = "UPDATE director SET name = ? WHERE id = ?";
     private static final String IS_EXISTS_SQL = "SELECT EXISTS(SELECT * FROM director WHERE id = ?)";
+    private static final String SELECT_IDS_SQL = "SELECT id FROM director";
     private static final String DELETE_DIRECTOR_SQL = "DELETE FROM director WHERE id = ?";
 
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final JdbcTemplate jdbcTemplate;
+    private final IdPresence idPresence;
+    private final FilmSearchIndex searchIndex;
+    private final Cache directorCache;
+    private final Cache allDirectorsCache;
+    private final FilmCache filmCache;
 
     private final BeanPropertyRowMapper<Director> directorMapper = new BeanPropertyRowMapper<>(Director.class);
 
     @Autowired
-    public DirectorDaoImpl(JdbcTemplate jdbcTemplate) {
+    public DirectorDaoImpl(JdbcTemplate jdbcTemplate, FilmSearchIndex searchIndex, CacheManager cacheManager,
+                           FilmCache filmCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.idPresence = new IdPresence(jdbcTemplate, SELECT_IDS_SQL, IS_EXISTS_SQL);
+        this.searchIndex = searchIndex;
+        this.directorCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.DIRECTORS));
+        this.allDirectorsCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.ALL_DIRECTORS));
+        this.filmCache = filmCache;
     }
 
     @Override
     public List<Director> findAll() {
-        return jdbcTemplate.query(SELECT_ALL_SQL, directorMapper);
+        return CachedLookup.findList(allDirectorsCache, SimpleKey.EMPTY,
+                () -> jdbcTemplate.query(SELECT_ALL_SQL, directorMapper), DirectorDaoImpl::copy);
     }
 
     @Override
     public Optional<Director> findById(Long id) {
+        return CachedLookup.find(directorCache, id, Director.class, () -> loadById(id), DirectorDaoImpl::copy);
+    }
+
+    private Optional<Director> loadById(Long id) {
         Director director = null;
         try {
             director = jdbcTemplate.queryForObject(SELECT_DIRECTOR_SQL, directorMapper, id);
@@ -66,6 +98,26 @@ public class DirectorDaoImpl implements DirectorDao {
         return jdbcTemplate.query(SELECT_DIRECTOR_BY_FILM_ID, directorMapper, id);
     }
 
+    @Override
+    public Map<Long, Set<Director>> findByFilmIds(Collection<Long> filmIds) {
+        Map<Long, Set<Director>> directors = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return directors;
+        }
+        Map<Long, Set<Long>> directorIds = new HashMap<>();
+        jdbcTemplate.query(SELECT_DIRECTOR_IDS_BY_FILMS_SQL, rs -> {
+            directorIds.computeIfAbsent(rs.getLong("film_id"), id -> new HashSet<>()).add(rs.getLong("director_id"));
+        }, (Object) filmIds.toArray(new Long[0]));
+        Map<Long, Director> directorsById = findAllByIds(directorIds.values().stream()
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet()));
+        directorIds.forEach((filmId, ids) -> directors.put(filmId, ids.stream()
+                .map(directorsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet())));
+        return directors;
+    }
+
     @Override
     public List<Long> findFilmsIdByDirectorId(Long id, String sort) {
         if (sort.equals("year")) {
@@ -85,22 +137,86 @@ public class DirectorDaoImpl implements DirectorDao {
             return ps;
         }, keyHolder);
         director.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        AfterCommit.run(() -> idPresence.add(director.getId()));
+        AfterCommit.run(() -> searchIndex.putDirector(director.getId(), director.getName()));
+        CachedLookup.put(directorCache, director.getId(), copy(director));
+        CachedLookup.clear(allDirectorsCache);
         return director;
     }
 
+    @Override
+    @Transactional
+    public Map<String, Director> findOrCreateByNames(Collection<String> names) {
+        Map<String, Director> directors = new HashMap<>();
+        if (names.isEmpty()) {
+            return directors;
+        }
+        jdbcTemplate.query(SELECT_DIRECTORS_BY_NAMES_SQL, directorMapper, (Object) names.toArray(new String[0]))
+                .forEach(director -> directors.put(director.getName(), director));
+        List<String> missing = names.stream()
+                .filter(name -> !directors.containsKey(name))
+                .collect(Collectors.toList());
+        List<Long> ids = BatchInsert.withKeys(jdbcTemplate, INSERT_DIRECTOR_SQL, missing.stream()
+                .map(name -> new Object[]{name})
+                .collect(Collectors.toList()));
+        List<Director> created = new ArrayList<>(missing.size());
+        for (int i = 0; i < missing.size(); i++) {
+            Director director = new Director();
+            director.setId(ids.get(i));
+            director.setName(missing.get(i));
+            directors.put(director.getName(), director);
+            created.add(director);
+        }
+        AfterCommit.run(() -> created.forEach(director -> {
+            idPresence.add(director.getId());
+            searchIndex.putDirector(director.getId(), director.getName());
+        }));
+        CachedLookup.clear(allDirectorsCache);
+        return directors;
+    }
+
     @Override
     public Director updateDirector(Director director) {
         jdbcTemplate.update(UPDATE_DIRECTOR_SQL, director.getName(), director.getId());
+        List<Long> filmIds = jdbcTemplate.queryForList(SELECT_FILM_IDS_BY_DIRECTOR_SQL, Long.class, director.getId());
+        AfterCommit.run(() -> {
+            searchIndex.putDirector(director.getId(), director.getName());
+            filmCache.invalidateAll(filmIds);
+        });
+        CachedLookup.put(directorCache, director.getId(), copy(director));
+        CachedLookup.clear(allDirectorsCache);
         return director;
     }
 
     @Override
     public boolean existsById(Long id) {
-        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_EXISTS_SQL, Boolean.class, id));
+        return idPresence.contains(id);
     }
 
     @Override
     public void deleteById(Long id) {
+        List<Long> filmIds = jdbcTemplate.queryForList(SELECT_FILM_IDS_BY_DIRECTOR_SQL, Long.class, id);
         jdbcTemplate.update(DELETE_DIRECTOR_SQL, id);
+        AfterCommit.run(() -> {
+            searchIndex.removeDirector(id);
+            idPresence.remove(id);
+            filmCache.invalidateAll(filmIds);
+        });
+        CachedLookup.evict(directorCache, id);
+        CachedLookup.clear(allDirectorsCache);
+    }
+
+    private Map<Long, Director> findAllByIds(Collection<Long> ids) {
+        return CachedLookup.findAll(directorCache, ids, Director.class,
+                missing -> jdbcTemplate.query(SELECT_DIRECTORS_BY_IDS_SQL, directorMapper,
+                        (Object) missing.toArray(new Long[0])),
+                Director::getId, DirectorDaoImpl::copy);
+    }
+
+    private static Director copy(Director director) {
+        Director copy = new Director();
+        copy.setId(director.getId());
+        copy.setName(director.getName());
+        return copy;
     }
 }
@@ -6,7 +6,34 @@ import java.util.List;
 
 public interface EventDao {
 
+    /**
+     * Adds the event to the feed. Depending on the journal mode the event is written in the current
+     * transaction or after it commits, but it is always visible to feed reads that follow.
+     *
+     * @param event to be added.
+     */
     void addEvent(Event event);
 
-    List<Event> getFeed(Long userId);
+    /**
+     * Returns the latest events of the user older than the given event, oldest first.
+     * Pass the id of the first returned event as {@code before} to get the previous page.
+     *
+     * @param userId of the user.
+     * @param before id of the event to start before, exclusive.
+     * @param limit  maximum number of events to return.
+     * @return {@link List} of events or empty {@link List}.
+     */
+    List<Event> getFeedPage(Long userId, long before, int limit);
+
+    /**
+     * Returns the latest events of the users the user has added as friends, older than the given event
+     * and oldest first. The friends feed is eventually consistent: events still queued for writing are
+     * not waited for.
+     *
+     * @param userId of the user.
+     * @param before id of the event to start before, exclusive.
+     * @param limit  maximum number of events to return.
+     * @return {@link List} of events or empty {@link List}.
+     */
+    List<Event> getFriendsFeed(Long userId, long before, int limit);
 }
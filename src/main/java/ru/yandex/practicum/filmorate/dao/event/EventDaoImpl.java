@@ -1,37 +1,47 @@
 package ru.yandex.practicum.filmorate.dao.event;
 
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Event;
 
+import java.util.Collections;
 import java.util.List;
 
 @Component
 public class EventDaoImpl implements EventDao {
 
-    private static String INSERT_EVENT_SQL = "INSERT INTO event(user_id, event_type, operation, entity_id)" +
-            "VALUES ( ?, ?, ?, ? )";
-
-    private static String SELECT_EVENT_SQL = "SELECT * FROM event WHERE user_id = ?";
+    private static final String SELECT_EVENT_PAGE_SQL = "SELECT * FROM event WHERE user_id = ? AND id < ? " +
+            "ORDER BY id DESC LIMIT ?";
 
     private final JdbcTemplate jdbcTemplate;
+    private final RowMapper<Event> eventMapper;
+    private final EventJournal journal;
+    private final FeedTimelines timelines;
 
-    public EventDaoImpl(JdbcTemplate jdbcTemplate) {
+    public EventDaoImpl(JdbcTemplate jdbcTemplate, RowMapper<Event> eventMapper, EventJournal journal,
+                        FeedTimelines timelines) {
         this.jdbcTemplate = jdbcTemplate;
+        this.eventMapper = eventMapper;
+        this.journal = journal;
+        this.timelines = timelines;
     }
 
     @Override
     public void addEvent(Event event) {
-        jdbcTemplate.update(INSERT_EVENT_SQL,
-                event.getUserId(),
-                event.getEventType().name(),
-                event.getOperation().name(),
-                event.getEntityId());
+        journal.publish(event);
+    }
+
+    @Override
+    public List<Event> getFeedPage(Long userId, long before, int limit) {
+        journal.flush(userId);
+        List<Event> events = jdbcTemplate.query(SELECT_EVENT_PAGE_SQL, eventMapper, userId, before, limit);
+        Collections.reverse(events);
+        return events;
     }
 
     @Override
-    public List<Event> getFeed(Long userId) {
-        return jdbcTemplate.query(SELECT_EVENT_SQL, new BeanPropertyRowMapper<>(Event.class), userId);
+    public List<Event> getFriendsFeed(Long userId, long before, int limit) {
+        return timelines.page(userId, before, limit);
     }
 }
@@ -0,0 +1,323 @@
+package ru.yandex.practicum.filmorate.dao.event;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.util.AfterCommit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes feed events off the request thread. Events are published to a bounded queue after the
+ * publishing transaction commits, and a single writer thread inserts whatever has queued up in one
+ * batch. Event ids therefore follow the order of publication.
+ * <p>
+ * {@code mode=sync} inserts every event in the caller's transaction instead. When the queue is full,
+ * {@code overflow=block} makes the publisher wait for space, {@code overflow=write-through} makes it
+ * insert the event itself. A user's own feed waits with {@link #flush(long)} only for that user's queued
+ * events, so a read does not wait for the backlog of other users. Friends feeds do not wait and see
+ * events once they are written. Written events get their generated ids and are fanned out to
+ * {@link FeedTimelines}.
+ * <p>
+ * Events written off the caller's transaction, by the writer or on overflow from an after-commit callback,
+ * are inserted in a transaction of their own. A failed batch is retried with backoff up to
+ * {@code max-attempts} times before it is given up, so a broken event can't stall the feed for good.
+ */
+@Component
+public class EventJournal {
+
+    private static final String INSERT_EVENT_SQL = "INSERT INTO event(created, user_id, event_type, operation, " +
+            "entity_id) VALUES (?, ?, ?, ?, ?)";
+    private static final long POLL_MILLIS = 500;
+    private static final long RETRY_MILLIS = 100;
+    private static final long MAX_RETRY_MILLIS = 10_000;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTransaction;
+    private final FeedTimelines timelines;
+    private final boolean async;
+    private final boolean blockOnOverflow;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final BlockingQueue<Event> queue;
+
+    private final Object progress = new Object();
+    private long published;
+    private long written;
+    private final Map<Long, Integer> queuedByUser = new HashMap<>();
+    private volatile boolean running;
+    private Thread writer;
+    private volatile List<Event> unwritten = List.of();
+
+    @Autowired
+    public EventJournal(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                        FeedTimelines timelines, MeterRegistry registry,
+                        @Value("${filmorate.events.journal.mode:async}") String mode,
+                        @Value("${filmorate.events.journal.overflow:block}") String overflow,
+                        @Value("${filmorate.events.journal.capacity:10000}") int capacity,
+                        @Value("${filmorate.events.journal.batch-size:500}") int batchSize,
+                        @Value("${filmorate.events.journal.max-attempts:10}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.timelines = timelines;
+        this.async = parse(mode, "async", "sync");
+        this.blockOnOverflow = parse(overflow, "block", "write-through");
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        registry.gaugeCollectionSize("filmorate.events.queue", List.of(), queue);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!async) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "event-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (!unwritten.isEmpty()) {
+            writeBatch(new ArrayList<>(unwritten));
+            unwritten = List.of();
+        }
+        writeQueued();
+    }
+
+    /**
+     * Publishes the event once the current transaction commits, or right away if there is none.
+     *
+     * @param event to be written to the feed.
+     */
+    public void publish(Event event) {
+        if (event.getCreated() == null) {
+            event.setCreated(new Timestamp(System.currentTimeMillis()));
+        }
+        if (!async) {
+            List<Event> written = write(List.of(event));
+            AfterCommit.run(() -> timelines.fanOut(written));
+            return;
+        }
+        AfterCommit.run(() -> enqueue(event));
+    }
+
+    /**
+     * Waits until every event published before the call is written.
+     */
+    public void flush() {
+        if (!async) {
+            return;
+        }
+        if (!running) {
+            writeQueuedQuietly();
+            return;
+        }
+        synchronized (progress) {
+            long target = published;
+            while (written < target) {
+                try {
+                    progress.wait(POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until no event of the user is queued, so the user's own events published before the call
+     * are written. Events of other users are not waited for.
+     *
+     * @param userId id of the user who published the events.
+     */
+    public void flush(long userId) {
+        if (!async) {
+            return;
+        }
+        if (!running) {
+            writeQueuedQuietly();
+            return;
+        }
+        synchronized (progress) {
+            while (queuedByUser.containsKey(userId)) {
+                try {
+                    progress.wait(POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void enqueue(Event event) {
+        synchronized (progress) {
+            if (queue.offer(event)) {
+                queued(event);
+                return;
+            }
+        }
+        if (!blockOnOverflow) {
+            log.warn("Event journal is full, writing event of user {} on the caller thread", event.getUserId());
+            writeInNewTransaction(List.of(event));
+            return;
+        }
+        try {
+            while (true) {
+                synchronized (progress) {
+                    if (queue.offer(event)) {
+                        queued(event);
+                        return;
+                    }
+                    progress.wait(POLL_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for space in the event journal, writing event on the caller thread");
+            writeInNewTransaction(List.of(event));
+        }
+    }
+
+    private void queued(Event event) {
+        published++;
+        queuedByUser.merge(event.getUserId(), 1, Integer::sum);
+    }
+
+    private void writeLoop() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Event first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                unwritten = List.copyOf(batch);
+                return;
+            }
+        }
+    }
+
+    private void writeQueued() throws InterruptedException {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeQueuedQuietly() {
+        try {
+            writeQueued();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeBatch(List<Event> batch) throws InterruptedException {
+        long backoff = RETRY_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                writeInNewTransaction(batch);
+                break;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Giving up on {} feed events after {} attempts: {}", batch.size(), attempt, batch, e);
+                    break;
+                }
+                log.warn("Failed to write {} feed events, retrying in {} ms", batch.size(), backoff, e);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_MILLIS);
+            }
+        }
+        synchronized (progress) {
+            written += batch.size();
+            for (Event event : batch) {
+                queuedByUser.computeIfPresent(event.getUserId(), (userId, count) -> count == 1 ? null : count - 1);
+            }
+            progress.notifyAll();
+        }
+    }
+
+    /**
+     * Writes the events and fans them out right after their own transaction commits. Registering the
+     * fan-out as an after-commit callback would lose it here, as overflow writes run inside the after-commit
+     * phase of the publisher's transaction, where new callbacks are no longer called.
+     */
+    private void writeInNewTransaction(List<Event> events) {
+        timelines.fanOut(newTransaction.execute(status -> write(events)));
+    }
+
+    private List<Event> write(List<Event> events) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_EVENT_SQL, new String[]{"id"})) {
+                for (Event event : events) {
+                    ps.setTimestamp(1, event.getCreated());
+                    ps.setLong(2, event.getUserId());
+                    ps.setString(3, event.getEventType().name());
+                    ps.setString(4, event.getOperation().name());
+                    ps.setLong(5, event.getEntityId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = 0; keys.next() && i < events.size(); i++) {
+                        events.get(i).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+        return List.copyOf(events);
+    }
+
+    private static boolean parse(String value, String trueValue, String falseValue) {
+        if (trueValue.equalsIgnoreCase(value)) {
+            return true;
+        }
+        if (falseValue.equalsIgnoreCase(value)) {
+            return false;
+        }
+        throw new IllegalArgumentException(String.format("Expected %s or %s but got %s", trueValue, falseValue,
+                value));
+    }
+}
@@ -0,0 +1,305 @@
+package ru.yandex.practicum.filmorate.dao.event;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.user.FriendGraph;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Materialized friend feeds. The timeline of a user holds the latest events of the users they have
+ * added as friends in a bounded ring buffer. It is built with one fan-in query the first time the user
+ * reads it, and after that every written event is fanned out to the timelines of the author's readers.
+ * <p>
+ * Authors followed by more than {@code fan-out-limit} users are not fanned out; their events are read
+ * with a fan-in query and merged into the page. A page older than what the ring buffer holds falls
+ * back to a fan-in query as well. The least recently used timelines are dropped past {@code max-timelines}.
+ */
+@Component
+public class FeedTimelines {
+
+    private static final String SELECT_EVENTS_SQL = "SELECT * FROM event WHERE user_id = ANY(?) AND id < ? " +
+            "ORDER BY id DESC LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RowMapper<Event> eventMapper;
+    private final FriendGraph friendGraph;
+    private final int capacity;
+    private final int fanOutLimit;
+    private final Cache<Long, Timeline> timelines;
+    private final Map<Long, Set<Timeline>> readersByAuthor = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public FeedTimelines(JdbcTemplate jdbcTemplate, RowMapper<Event> eventMapper, FriendGraph friendGraph,
+                         @Value("${filmorate.feed.timeline-size:500}") int capacity,
+                         @Value("${filmorate.feed.fan-out-limit:1000}") int fanOutLimit,
+                         @Value("${filmorate.feed.max-timelines:10000}") long maxTimelines) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventMapper = eventMapper;
+        this.friendGraph = friendGraph;
+        this.capacity = capacity;
+        this.fanOutLimit = fanOutLimit;
+        this.timelines = Caffeine.newBuilder()
+                .maximumSize(maxTimelines)
+                .<Long, Timeline>removalListener((userId, timeline, cause) -> {
+                    if (timeline != null) {
+                        unregister(timeline);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Drops all timelines, e.g. after the friendship graph has been reloaded.
+     */
+    public void clear() {
+        timelines.invalidateAll();
+        timelines.cleanUp();
+    }
+
+    /**
+     * Returns the latest events of the user's friends older than the given event, oldest first.
+     *
+     * @param userId of the reader.
+     * @param before id of the event to start before, exclusive.
+     * @param limit  maximum number of events to return.
+     * @return {@link List} of events or empty {@link List}.
+     */
+    public List<Event> page(long userId, long before, int limit) {
+        Timeline timeline = timelines.get(userId, this::register);
+        timeline.ensureLoaded();
+        List<Event> page = timeline.before(before, limit);
+        if (page == null) {
+            page = query(timeline.fannedOutAuthors, before, limit);
+        }
+        if (!timeline.fanInAuthors.isEmpty()) {
+            page = merge(page, query(timeline.fanInAuthors, before, limit), limit);
+        }
+        List<Event> result = new ArrayList<>(page);
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Appends written events to the timelines of their authors' readers.
+     */
+    public void fanOut(List<Event> events) {
+        lock.readLock().lock();
+        try {
+            for (Event event : events) {
+                if (isFanIn(event.getUserId())) {
+                    continue;
+                }
+                for (Timeline timeline : readersByAuthor.getOrDefault(event.getUserId(), Collections.emptySet())) {
+                    timeline.add(event);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Called after {@link FriendGraph} has recorded the new friendship. Readers of an author crossing the
+     * fan-out limit lose their timelines, which are rebuilt with the author on the other side of the limit.
+     */
+    public void addFriend(long userId, long friendId) {
+        timelines.invalidate(userId);
+        if (friendGraph.followers(friendId).length == fanOutLimit + 1) {
+            invalidateReaders(friendId);
+        }
+    }
+
+    /**
+     * Called after {@link FriendGraph} has dropped the friendship.
+     */
+    public void removeFriend(long userId, long friendId) {
+        timelines.invalidate(userId);
+        if (friendGraph.followers(friendId).length == fanOutLimit) {
+            invalidateReaders(friendId);
+        }
+    }
+
+    public void removeUser(long userId) {
+        timelines.invalidate(userId);
+        invalidateReaders(userId);
+    }
+
+    private void invalidateReaders(long authorId) {
+        List<Long> readerIds = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Timeline timeline : readersByAuthor.getOrDefault(authorId, Collections.emptySet())) {
+                readerIds.add(timeline.userId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        timelines.invalidateAll(readerIds);
+    }
+
+    private boolean isFanIn(long authorId) {
+        return friendGraph.followers(authorId).length > fanOutLimit;
+    }
+
+    private Timeline register(long userId) {
+        long[] friendIds = friendGraph.friends(userId);
+        Timeline timeline = new Timeline(userId);
+        lock.writeLock().lock();
+        try {
+            for (long friendId : friendIds) {
+                if (isFanIn(friendId)) {
+                    timeline.fanInAuthors.add(friendId);
+                } else {
+                    timeline.fannedOutAuthors.add(friendId);
+                    readersByAuthor.computeIfAbsent(friendId, id -> new HashSet<>()).add(timeline);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return timeline;
+    }
+
+    private void unregister(Timeline timeline) {
+        lock.writeLock().lock();
+        try {
+            for (Long authorId : timeline.fannedOutAuthors) {
+                Set<Timeline> readers = readersByAuthor.get(authorId);
+                if (readers != null) {
+                    readers.remove(timeline);
+                    if (readers.isEmpty()) {
+                        readersByAuthor.remove(authorId);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Event> query(Collection<Long> authorIds, long before, int limit) {
+        if (authorIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return jdbcTemplate.query(SELECT_EVENTS_SQL, eventMapper, (Object) authorIds.toArray(new Long[0]),
+                before, limit);
+    }
+
+    /**
+     * Merges two lists of events sorted by id descending, keeping at most {@code limit} of them.
+     */
+    private static List<Event> merge(List<Event> first, List<Event> second, int limit) {
+        List<Event> merged = new ArrayList<>(Math.min(limit, first.size() + second.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < first.size() || j < second.size())) {
+            if (j == second.size() || (i < first.size() && first.get(i).getId() > second.get(j).getId())) {
+                merged.add(first.get(i++));
+            } else {
+                merged.add(second.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Ring buffer of the latest fanned-out events of one reader, sorted by id.
+     */
+    private class Timeline {
+        private final long userId;
+        private final Set<Long> fannedOutAuthors = new HashSet<>();
+        private final Set<Long> fanInAuthors = new HashSet<>();
+        private final Event[] events = new Event[capacity];
+        private int head;
+        private int size;
+        private boolean loaded;
+        private boolean truncated;
+
+        Timeline(long userId) {
+            this.userId = userId;
+        }
+
+        /**
+         * Loads the latest events of the fanned-out authors. Events fanned out while the timeline was
+         * registered but not loaded yet are kept, duplicates are skipped by id.
+         */
+        synchronized void ensureLoaded() {
+            if (loaded) {
+                return;
+            }
+            List<Event> latest = query(fannedOutAuthors, Long.MAX_VALUE, capacity);
+            truncated = latest.size() == capacity;
+            for (int i = latest.size() - 1; i >= 0; i--) {
+                add(latest.get(i));
+            }
+            loaded = true;
+        }
+
+        synchronized void add(Event event) {
+            int position = size;
+            while (position > 0 && get(position - 1).getId() >= event.getId()) {
+                if (get(position - 1).getId().equals(event.getId())) {
+                    return;
+                }
+                position--;
+            }
+            if (size == capacity) {
+                truncated = true;
+                if (position == 0) {
+                    return;
+                }
+                head = (head + 1) % capacity;
+                size--;
+                position--;
+            }
+            for (int i = size; i > position; i--) {
+                set(i, get(i - 1));
+            }
+            set(position, event);
+            size++;
+        }
+
+        /**
+         * Returns up to {@code limit} events older than {@code before}, newest first, or null when the
+         * buffer may not hold all of them.
+         */
+        synchronized List<Event> before(long before, int limit) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (get(middle).getId() < before) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            if (low < limit && truncated) {
+                return null;
+            }
+            List<Event> page = new ArrayList<>(Math.min(limit, low));
+            for (int i = low - 1; i >= 0 && page.size() < limit; i--) {
+                page.add(get(i));
+            }
+            return page;
+        }
+
+        private Event get(int index) {
+            return events[(head + index) % capacity];
+        }
+
+        private void set(int index, Event event) {
+            events[(head + index) % capacity] = event;
+        }
+    }
+}
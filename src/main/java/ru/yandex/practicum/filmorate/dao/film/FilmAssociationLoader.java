@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.dao.film;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.director.DirectorDao;
+import ru.yandex.practicum.filmorate.dao.genre.GenreDao;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Fills genres and directors of the given films with one query per association,
+ * regardless of how many films are passed.
+ */
+@Component
+public class FilmAssociationLoader {
+
+    private final GenreDao genreDao;
+    private final DirectorDao directorDao;
+
+    @Autowired
+    public FilmAssociationLoader(GenreDao genreDao, DirectorDao directorDao) {
+        this.genreDao = genreDao;
+        this.directorDao = directorDao;
+    }
+
+    /**
+     * Sets genres and directors for every film in the given collection.
+     *
+     * @param films the films to be hydrated.
+     */
+    public void load(Collection<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        List<Long> ids = films.stream().map(Film::getId).collect(Collectors.toList());
+        Map<Long, Set<Genre>> genres = genreDao.findByFilmIds(ids);
+        Map<Long, Set<Director>> directors = directorDao.findByFilmIds(ids);
+        for (Film film : films) {
+            film.setGenres(genres.getOrDefault(film.getId(), new HashSet<>()));
+            film.setDirectors(directors.getOrDefault(film.getId(), new HashSet<>()));
+        }
+    }
+
+    /**
+     * Replaces genres and directors of the film, which may carry ids only, with the full reference data.
+     * Genres and directors are read through their caches, so a written film needs no extra queries.
+     * Unknown ids are dropped.
+     *
+     * @param film the film to be completed.
+     */
+    public void resolve(Film film) {
+        film.setGenres(film.getGenres().stream()
+                .map(genre -> genreDao.findById(genre.getId()))
+                .flatMap(Optional::stream)
+                .collect(Collectors.toCollection(HashSet::new)));
+        film.setDirectors(film.getDirectors().stream()
+                .map(director -> directorDao.findById(director.getId()))
+                .flatMap(Optional::stream)
+                .collect(Collectors.toCollection(HashSet::new)));
+    }
+}
@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.dao.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded cache of fully hydrated films, weighed by their approximate size in bytes. Films are copied
+ * on the way in and on the way out, so callers never share an instance with the cache or with each other.
+ * <p>
+ * Bulk loads are not atomic with invalidation: a load that read a film before its update committed could
+ * put it back after the invalidation. Every invalidation therefore bumps a counter first, and a bulk load
+ * that sees the counter changed while it ran drops what it has put.
+ */
+@Component
+public class FilmCache {
+
+    private static final int FILM_BASE_WEIGHT = 200;
+    private static final int ASSOCIATION_WEIGHT = 64;
+
+    private final Cache<Long, Film> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public FilmCache(MeterRegistry registry,
+                     @Value("${filmorate.film-cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                     @Value("${filmorate.film-cache.ttl:10m}") Duration ttl) {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Long id, Film film) -> weigh(film))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "films");
+    }
+
+    /**
+     * Returns a copy of the cached film, loading and caching it first if it is missing.
+     *
+     * @param id     of the film.
+     * @param loader loads the film or returns null if it does not exist.
+     * @return {@link Optional} with a copy of the film or empty {@link Optional}.
+     */
+    public Optional<Film> get(Long id, Function<Long, Film> loader) {
+        return Optional.ofNullable(cache.get(id, key -> copyOf(loader.apply(key)))).map(FilmCache::copyOf);
+    }
+
+    /**
+     * Returns copies of the cached films, loading all missing ones with a single call to the loader.
+     *
+     * @param ids    of the films.
+     * @param loader loads the films that are not cached.
+     * @return {@link Map} of film copies by id, without ids of films that do not exist.
+     */
+    public Map<Long, Film> getAll(Collection<Long> ids, Function<Set<Long>, Collection<Film>> loader) {
+        Map<Long, Film> cached = cache.getAllPresent(ids);
+        Map<Long, Film> films = new HashMap<>();
+        cached.forEach((id, film) -> films.put(id, copyOf(film)));
+        Set<Long> missing = ids.stream().filter(id -> !cached.containsKey(id)).collect(Collectors.toSet());
+        if (!missing.isEmpty()) {
+            long version = invalidations.get();
+            List<Long> put = new ArrayList<>();
+            for (Film film : loader.apply(missing)) {
+                if (cache.asMap().putIfAbsent(film.getId(), copyOf(film)) == null) {
+                    put.add(film.getId());
+                }
+                films.put(film.getId(), film);
+            }
+            if (invalidations.get() != version) {
+                cache.invalidateAll(put);
+            }
+        }
+        return films;
+    }
+
+    public void invalidate(Long id) {
+        invalidations.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<Long> ids) {
+        invalidations.incrementAndGet();
+        cache.invalidateAll(ids);
+    }
+
+    private static int weigh(Film film) {
+        int associations = (film.getGenres() == null ? 0 : film.getGenres().size())
+                + (film.getDirectors() == null ? 0 : film.getDirectors().size());
+        return FILM_BASE_WEIGHT + ASSOCIATION_WEIGHT * associations
+                + 2 * (length(film.getName()) + length(film.getDescription()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static Film copyOf(Film film) {
+        if (film == null) {
+            return null;
+        }
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        if (film.getMpa() != null) {
+            Mpa mpa = new Mpa();
+            mpa.setId(film.getMpa().getId());
+            mpa.setName(film.getMpa().getName());
+            copy.setMpa(mpa);
+        }
+        if (film.getGenres() != null) {
+            copy.setGenres(film.getGenres().stream().map(genre -> {
+                Genre genreCopy = new Genre();
+                genreCopy.setId(genre.getId());
+                genreCopy.setName(genre.getName());
+                return genreCopy;
+            }).collect(Collectors.toCollection(HashSet::new)));
+        }
+        if (film.getDirectors() != null) {
+            copy.setDirectors(film.getDirectors().stream().map(director -> {
+                Director directorCopy = new Director();
+                directorCopy.setId(director.getId());
+                directorCopy.setName(director.getName());
+                return directorCopy;
+            }).collect(Collectors.toCollection(HashSet::new)));
+        }
+        return copy;
+    }
+}
@@ -2,8 +2,10 @@ package ru.yandex.practicum.filmorate.dao.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmDao {
 
@@ -14,6 +16,24 @@ public interface FilmDao {
      */
     List<Film> findAll();
 
+    /**
+     * Returns films with id greater than the given one, ordered by id.
+     *
+     * @param afterId id of the last film of the previous page.
+     * @param limit   maximum number of films to return.
+     * @return {@link List} of films or empty {@link List}.
+     */
+    List<Film> findPage(long afterId, int limit);
+
+    /**
+     * Passes all films ordered by id to the given consumer, reading them page by page with
+     * {@link #findPage(long, int)}. No connection is held while the consumer runs, so a slow consumer
+     * does not tie up the pool.
+     *
+     * @param consumer receives every film with genres and directors set.
+     */
+    void streamAll(Consumer<Film> consumer);
+
     /**
      * Returns {@link Film} by the given id.
      *
@@ -22,6 +42,14 @@ public interface FilmDao {
      */
     Optional<Film> findById(Long id);
 
+    /**
+     * Returns films by the given ids in the same order. Missing ids are skipped.
+     *
+     * @param ids of the films to be returned.
+     * @return {@link List} of found films or empty {@link List}.
+     */
+    List<Film> findAllByIds(Collection<Long> ids);
+
     /**
      * Sets the next available ID and saves the {@link Film} in storage.
      *
@@ -30,13 +58,22 @@ public interface FilmDao {
      */
     Film createFilm(Film film);
 
+    /**
+     * Saves all films with one batched insert per table and sets their generated ids.
+     *
+     * @param films the films to be saved.
+     * @return saved films.
+     */
+    List<Film> createFilms(List<Film> films);
+
     /**
      * Saves the given {@link Film} by the given id.
      *
      * @param id   of the film to be updated.
      * @param film the film to be saved.
+     * @return the saved film with names of its genres and directors filled in.
      */
-    void updateFilm(Long id, Film film);
+    Film updateFilm(Long id, Film film);
 
     /**
      * Checks whether there is a {@link Film} with the given id.
@@ -53,15 +90,6 @@ public interface FilmDao {
      */
     void deleteById(Long id);
 
-    /**
-     * Returns all movies that contain the desired substring in the title or the name of the director.
-     *
-     * @param titleQuery    substring for searching by names.
-     * @param directorQuery substring for searching by directors.
-     * @return all films satisfying the request.
-     */
-    List<Film> findFilms(String titleQuery, String directorQuery);
-
     /**
      * Returns {@link Film} that both users have liked.
      *
@@ -70,4 +98,16 @@ public interface FilmDao {
      * @return {@link List<Film>}.
      */
     List<Film> findCommonFilmsByUsersId(Long userId, Long friendId);
+
+    /**
+     * Returns films whose title or director names match the query, best match first.
+     *
+     * @param query         words to search for.
+     * @param matchTitle    whether film titles are searched.
+     * @param matchDirector whether director names are searched.
+     * @param offset        number of matching films to skip.
+     * @param limit         maximum number of films to return.
+     * @return {@link List} of found films or empty {@link List}.
+     */
+    List<Film> search(String query, boolean matchTitle, boolean matchDirector, int offset, int limit);
 }
@@ -11,27 +11,32 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
-import ru.yandex.practicum.filmorate.dao.director.DirectorDao;
-import ru.yandex.practicum.filmorate.dao.genre.GenreDao;
+import ru.yandex.practicum.filmorate.dao.likes.LikeMatrix;
+import ru.yandex.practicum.filmorate.dao.likes.PopularFilmsRanking;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.util.AfterCommit;
+import ru.yandex.practicum.filmorate.util.BatchInsert;
+import ru.yandex.practicum.filmorate.util.IdPresence;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component
 public class FilmDaoImpl implements FilmDao {
 
     private static final String IS_EXIST_SQL = "SELECT EXISTS(SELECT * FROM film WHERE id = ?)";
-    private static final String SELECT_ALL_SQL = "SELECT f.*, m.NAME as mpa_name " +
-            "FROM film f LEFT JOIN mpa m ON m.id = f.mpa_id";
-    private static final String SELECT_FILM_SQL = "SELECT f.*, m.NAME as mpa_name " +
-            "FROM film f LEFT JOIN mpa m ON m.id = f.mpa_id WHERE f.id = ?";
+    private static final String SELECT_IDS_SQL = "SELECT id FROM film";
+    private static final String SELECT_ALL_SQL = "SELECT f.* FROM film f";
+    private static final String SELECT_PAGE_SQL = SELECT_ALL_SQL + " WHERE f.id > ? ORDER BY f.id LIMIT ?";
+    private static final String SELECT_FILM_SQL = "SELECT f.* FROM film f WHERE f.id = ?";
+    private static final String SELECT_FILMS_BY_IDS_SQL = "SELECT f.* FROM film f WHERE f.id = ANY(?)";
     private static final String INSERT_FILM_SQL = "INSERT INTO film(name, description, release_date, duration, mpa_id) " +
             "VALUES (?, ?, ?, ?, ?)";
     private static final String UPDATE_FILM_SQL = "UPDATE film SET name = ?, description = ?, release_date = ?, " +
@@ -41,59 +46,85 @@ public class FilmDaoImpl implements FilmDao {
     private static final String SELECT_GENRES_FILM_SQL = "SELECT genre_id FROM film_genre WHERE film_id = ?";
     private static final String INSERT_FILM_GENRES_SQL = "INSERT INTO film_genre VALUES (?,?)";
     private static final String DELETE_FILM_GENRES_SQL = "DELETE FROM film_genre WHERE film_id = ? AND genre_id = ?";
-    private static final String SELECT_LIKES_INTERSECTION_SQL = "SELECT f.*, m.name mpa_name, COUNT(user_id) likes " +
-            "FROM film f LEFT JOIN mpa m ON m.id = f.mpa_id LEFT JOIN film_likes fl ON fl.film_id = f.id " +
+    private static final String SELECT_LIKES_INTERSECTION_SQL = "SELECT f.* FROM film f " +
             "WHERE f.id IN (SELECT film_id FROM film_likes fl WHERE fl.user_id = ?) " +
             "AND f.id IN (SELECT film_id FROM film_likes fl WHERE fl.user_id = ?) " +
-            "GROUP BY f.id ORDER BY likes DESC";
+            "ORDER BY f.likes_count DESC";
 
     private static final String SELECT_FILM_DIRECTORS_SQL = "SELECT director_id FROM film_director WHERE film_id = ?";
     private static final String INSERT_FILM_DIRECTORS_SQL = "INSERT INTO film_director VALUES(?,?)";
     private static final String DELETE_FILM_DIRECTORS_SQL = "DELETE FROM film_director WHERE film_id = ? AND director_id = ?";
-    private static final String SELECT_FILMS_BY_SUBSTRING_SQL = "SELECT f.*, m.NAME as mpa_name " +
-            "FROM film f LEFT JOIN mpa m ON m.id = f.mpa_id LEFT JOIN film_director fd ON fd.film_id=f.id " +
-            "LEFT JOIN director d ON d.id = fd.director_id WHERE LOWER(d.NAME) LIKE ? OR LOWER(f.NAME) LIKE ? " +
-            "ORDER BY f.id DESC ";
+    private static final int STREAM_CHUNK_SIZE = 500;
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final JdbcTemplate jdbcTemplate;
-    private final GenreDao genreDao;
-    private final DirectorDao directorDao;
+    private final IdPresence idPresence;
+    private final FilmAssociationLoader associationLoader;
     private final RowMapper<Film> filmMapper;
+    private final PopularFilmsRanking ranking;
+    private final LikeMatrix likeMatrix;
+    private final FilmSearchIndex searchIndex;
+    private final FilmCache filmCache;
 
     @Autowired
-    public FilmDaoImpl(JdbcTemplate jdbcTemplate, GenreDao genreDao, DirectorDao directorDao, RowMapper<Film> filmMapper) {
+    public FilmDaoImpl(JdbcTemplate jdbcTemplate, FilmAssociationLoader associationLoader,
+                       RowMapper<Film> filmMapper, PopularFilmsRanking ranking, LikeMatrix likeMatrix,
+                       FilmSearchIndex searchIndex, FilmCache filmCache) {
         this.jdbcTemplate = jdbcTemplate;
-        this.genreDao = genreDao;
-        this.directorDao = directorDao;
+        this.idPresence = new IdPresence(jdbcTemplate, SELECT_IDS_SQL, IS_EXIST_SQL);
+        this.associationLoader = associationLoader;
         this.filmMapper = filmMapper;
+        this.ranking = ranking;
+        this.likeMatrix = likeMatrix;
+        this.searchIndex = searchIndex;
+        this.filmCache = filmCache;
     }
 
     @Override
     @Transactional
     public List<Film> findAll() {
         List<Film> films = jdbcTemplate.query(SELECT_ALL_SQL, filmMapper);
-        for (Film film : films) {
-            film.setGenres(new HashSet<>(genreDao.findByFilmId(film.getId())));
-            film.setDirectors(new HashSet<>(directorDao.findByFilmId(film.getId())));
-        }
+        associationLoader.load(films);
         return films;
     }
 
     @Override
     @Transactional
-    public Optional<Film> findById(Long id) {
-        Film film = null;
-        try {
-            film = jdbcTemplate.queryForObject(SELECT_FILM_SQL, filmMapper, id);
-            if (film == null) {
-                return Optional.empty();
+    public List<Film> findPage(long afterId, int limit) {
+        List<Film> films = jdbcTemplate.query(SELECT_PAGE_SQL, filmMapper, afterId, limit);
+        associationLoader.load(films);
+        return films;
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        long afterId = 0;
+        List<Film> page;
+        do {
+            page = findPage(afterId, STREAM_CHUNK_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
             }
-            film.setGenres(new HashSet<>(genreDao.findByFilmId(id)));
-            film.setDirectors(new HashSet<>(directorDao.findByFilmId(id)));
-        } catch (DataAccessException e) {
-            log.debug("Wrong ID: {}, message: {}", id, e.getMessage());
+        } while (page.size() == STREAM_CHUNK_SIZE);
+    }
+
+    @Override
+    @Transactional
+    public Optional<Film> findById(Long id) {
+        return filmCache.get(id, this::loadById);
+    }
+
+    @Override
+    @Transactional
+    public List<Film> findAllByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
-        return Optional.ofNullable(film);
+        Map<Long, Film> films = filmCache.getAll(ids, this::loadByIds);
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @Override
@@ -112,20 +143,50 @@ public class FilmDaoImpl implements FilmDao {
         }, keyHolder);
         final long id = Objects.requireNonNull(keyHolder.getKey()).longValue();
         film.setId(id);
+        AfterCommit.run(() -> idPresence.add(id));
         if (film.getGenres() != null) {
-            updateFilmData(film, INSERT_FILM_GENRES_SQL,
+            updateFilmData(film.getId(), INSERT_FILM_GENRES_SQL,
                     film.getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
         }
         if (film.getDirectors() != null) {
-            updateFilmData(film, INSERT_FILM_DIRECTORS_SQL,
+            updateFilmData(film.getId(), INSERT_FILM_DIRECTORS_SQL,
                     film.getDirectors().stream().map(Director::getId).collect(Collectors.toList()));
         }
+        updateIndexes(film);
         return film;
     }
 
     @Override
     @Transactional
-    public void updateFilm(Long id, Film film) {
+    public List<Film> createFilms(List<Film> films) {
+        List<Object[]> rows = new ArrayList<>(films.size());
+        for (Film film : films) {
+            rows.add(new Object[]{film.getName(), film.getDescription(), Date.valueOf(film.getReleaseDate()),
+                    film.getDuration(), film.getMpa().getId()});
+        }
+        List<Long> ids = BatchInsert.withKeys(jdbcTemplate, INSERT_FILM_SQL, rows);
+        List<Object[]> genres = new ArrayList<>();
+        List<Object[]> directors = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(ids.get(i));
+            if (film.getGenres() != null) {
+                film.getGenres().forEach(genre -> genres.add(new Object[]{film.getId(), genre.getId()}));
+            }
+            if (film.getDirectors() != null) {
+                film.getDirectors().forEach(director -> directors.add(new Object[]{film.getId(), director.getId()}));
+            }
+            updateIndexes(film);
+        }
+        jdbcTemplate.batchUpdate(INSERT_FILM_GENRES_SQL, genres);
+        jdbcTemplate.batchUpdate(INSERT_FILM_DIRECTORS_SQL, directors);
+        AfterCommit.run(() -> ids.forEach(idPresence::add));
+        return films;
+    }
+
+    @Override
+    @Transactional
+    public Film updateFilm(Long id, Film film) {
         jdbcTemplate.update(UPDATE_FILM_SQL,
                 film.getName(),
                 film.getDescription(),
@@ -133,76 +194,115 @@ public class FilmDaoImpl implements FilmDao {
                 film.getDuration(),
                 film.getMpa().getId(),
                 id);
+        film.setId(id);
         if (film.getGenres() == null) {
-            film.setGenres(Collections.emptySet());
+            film.setGenres(new HashSet<>());
         }
-        List<Long> currentGenres = jdbcTemplate.query(SELECT_GENRES_FILM_SQL,
-                ((rs, rowNum) -> rs.getLong("genre_id")), id);
-        List<Long> newGenres = film.getGenres().stream().map(Genre::getId).collect(Collectors.toList());
-        List<Long> genresToRemove = currentGenres.stream()
-                .filter(i -> !newGenres.contains(i))
-                .collect(Collectors.toList());
-        List<Long> genresToInsert = newGenres.stream()
-                .filter(i -> !currentGenres.contains(i))
-                .collect(Collectors.toList());
-        updateFilmData(film, DELETE_FILM_GENRES_SQL, genresToRemove);
-        updateFilmData(film, INSERT_FILM_GENRES_SQL, genresToInsert);
-
         if (film.getDirectors() == null) {
-            film.setDirectors(Collections.emptySet());
+            film.setDirectors(new HashSet<>());
         }
-        List<Long> currentDirectors = jdbcTemplate.query(SELECT_FILM_DIRECTORS_SQL,
-                ((rs, rowNum) -> rs.getLong("director_id")), id);
-        List<Long> newDirectors = film.getDirectors().stream().map(Director::getId).collect(Collectors.toList());
-        List<Long> directorsToRemove = currentDirectors.stream()
-                .filter(i -> !newDirectors.contains(i))
-                .collect(Collectors.toList());
-        List<Long> directorsToInsert = newDirectors.stream()
-                .filter(i -> !currentGenres.contains(i))
-                .collect(Collectors.toList());
-        updateFilmData(film, DELETE_FILM_DIRECTORS_SQL, directorsToRemove);
-        updateFilmData(film, INSERT_FILM_DIRECTORS_SQL, directorsToInsert);
-
+        syncAssociation(id, SELECT_GENRES_FILM_SQL, DELETE_FILM_GENRES_SQL, INSERT_FILM_GENRES_SQL,
+                film.getGenres().stream().map(Genre::getId).collect(Collectors.toSet()));
+        syncAssociation(id, SELECT_FILM_DIRECTORS_SQL, DELETE_FILM_DIRECTORS_SQL, INSERT_FILM_DIRECTORS_SQL,
+                film.getDirectors().stream().map(Director::getId).collect(Collectors.toSet()));
+        associationLoader.resolve(film);
+        updateIndexes(film);
+        AfterCommit.run(() -> filmCache.invalidate(id));
+        return film;
     }
 
     @Override
     public boolean existsById(Long id) {
-        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_EXIST_SQL, Boolean.class, id));
+        return idPresence.contains(id);
     }
 
     @Override
     public void deleteById(Long id) {
         jdbcTemplate.update(DELETE_FILM_SQL, id);
+        AfterCommit.run(() -> {
+            ranking.removeFilm(id);
+            likeMatrix.removeFilm(id);
+            searchIndex.removeFilm(id);
+            filmCache.invalidate(id);
+            idPresence.remove(id);
+        });
     }
 
     @Override
+    @Transactional
     public List<Film> findCommonFilmsByUsersId(Long userId, Long friendId) {
         List<Film> films = jdbcTemplate.query(SELECT_LIKES_INTERSECTION_SQL, filmMapper, userId, friendId);
-        for (Film film : films) {
-            Set<Genre> genres = new HashSet<>(genreDao.findByFilmId(film.getId()));
-            film.setGenres(genres);
-        }
+        associationLoader.load(films);
         return films;
     }
 
     @Override
-    public List<Film> findFilms(String titleQuery, String directorQuery) {
-        List<Film> films = jdbcTemplate.query(SELECT_FILMS_BY_SUBSTRING_SQL, filmMapper, directorQuery, titleQuery);
-        for (Film film : films) {
-            film.setGenres(new HashSet<>(genreDao.findByFilmId(film.getId())));
-            film.setDirectors(new HashSet<>(directorDao.findByFilmId(film.getId())));
+    public List<Film> search(String query, boolean matchTitle, boolean matchDirector, int offset, int limit) {
+        return findAllByIds(searchIndex.search(query, matchTitle, matchDirector, offset, limit));
+    }
+
+    private Film loadById(Long id) {
+        Film film = null;
+        try {
+            film = jdbcTemplate.queryForObject(SELECT_FILM_SQL, filmMapper, id);
+            if (film != null) {
+                associationLoader.load(List.of(film));
+            }
+        } catch (DataAccessException e) {
+            log.debug("Wrong ID: {}, message: {}", id, e.getMessage());
         }
+        return film;
+    }
+
+    private List<Film> loadByIds(Collection<Long> ids) {
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS_BY_IDS_SQL, filmMapper, (Object) ids.toArray(new Long[0]));
+        associationLoader.load(films);
         return films;
     }
 
-    private void updateFilmData(Film film, String query, List<Long> data) {
+    private void updateIndexes(Film film) {
+        Set<Long> genreIds = film.getGenres() == null ? Collections.emptySet()
+                : film.getGenres().stream().map(Genre::getId).collect(Collectors.toSet());
+        Set<Long> directorIds = film.getDirectors() == null ? Collections.emptySet()
+                : film.getDirectors().stream().map(Director::getId).collect(Collectors.toSet());
+        AfterCommit.run(() -> {
+            ranking.putFilm(film.getId(), film.getReleaseDate().getYear(), genreIds);
+            searchIndex.putFilm(film.getId(), film.getName(), directorIds);
+        });
+    }
+
+
+    /**
+     * Brings the rows of one film association in line with the given ids: reads the current ids, then
+     * deletes the stale ones and inserts the missing ones with one batch each.
+     */
+    private void syncAssociation(long filmId, String selectSql, String deleteSql, String insertSql,
+                                 Set<Long> target) {
+        Set<Long> current = new HashSet<>(jdbcTemplate.queryForList(selectSql, Long.class, filmId));
+        List<Long> toRemove = new ArrayList<>();
+        for (Long associatedId : current) {
+            if (!target.contains(associatedId)) {
+                toRemove.add(associatedId);
+            }
+        }
+        List<Long> toInsert = new ArrayList<>();
+        for (Long associatedId : target) {
+            if (!current.contains(associatedId)) {
+                toInsert.add(associatedId);
+            }
+        }
+        updateFilmData(filmId, deleteSql, toRemove);
+        updateFilmData(filmId, insertSql, toInsert);
+    }
+
+    private void updateFilmData(long filmId, String query, List<Long> data) {
         if (data.isEmpty()) {
             return;
         }
         jdbcTemplate.batchUpdate(query, new BatchPreparedStatementSetter() {
             @Override
             public void setValues(PreparedStatement ps, int i) throws SQLException {
-                ps.setLong(1, film.getId());
+                ps.setLong(1, filmId);
                 ps.setLong(2, data.get(i));
             }
 
@@ -0,0 +1,383 @@
+package ru.yandex.practicum.filmorate.dao.film;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over film titles and director names. Both are split into lower-case words.
+ * Every query word must match a word of the searched field. An exact match scores highest, then a
+ * prefix match, then a match inside a word. Query words shorter than three letters only match words they
+ * start. Only when a query word matches nothing does the index fall back to words one typo away.
+ */
+@Component
+public class FilmSearchIndex {
+
+    private static final String SELECT_FILMS_SQL = "SELECT id, name FROM film";
+    private static final String SELECT_DIRECTORS_SQL = "SELECT id, name FROM director";
+    private static final String SELECT_FILM_DIRECTORS_SQL = "SELECT film_id, director_id FROM film_director";
+
+    private static final double EXACT_SCORE = 3;
+    private static final double PREFIX_SCORE = 2;
+    private static final double INFIX_SCORE = 1;
+    private static final double TYPO_SCORE = 0.5;
+    private static final int MIN_TYPO_LENGTH = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TermIndex titles = new TermIndex();
+    private final TermIndex directorNames = new TermIndex();
+    private final Map<Long, Set<Long>> directorsByFilm = new HashMap<>();
+    private final Map<Long, Set<Long>> filmsByDirector = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public FilmSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            directorNames.clear();
+            directorsByFilm.clear();
+            filmsByDirector.clear();
+            jdbcTemplate.query(SELECT_FILMS_SQL, rs -> {
+                titles.put(rs.getLong("id"), tokenize(rs.getString("name")));
+            });
+            jdbcTemplate.query(SELECT_DIRECTORS_SQL, rs -> {
+                directorNames.put(rs.getLong("id"), tokenize(rs.getString("name")));
+            });
+            jdbcTemplate.query(SELECT_FILM_DIRECTORS_SQL, rs -> {
+                link(rs.getLong("film_id"), rs.getLong("director_id"));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns ids of films matching the query, best match first and the newest film first for equal scores.
+     *
+     * @param query         words to search for.
+     * @param matchTitle    whether film titles are searched.
+     * @param matchDirector whether director names are searched.
+     * @param offset        number of matching ids to skip.
+     * @param limit         maximum number of ids to return.
+     * @return {@link List} of film ids or empty {@link List}.
+     */
+    public List<Long> search(String query, boolean matchTitle, boolean matchDirector, int offset, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            if (matchTitle) {
+                titles.match(words).forEach((filmId, score) -> scores.merge(filmId, score, Math::max));
+            }
+            if (matchDirector) {
+                directorNames.match(words).forEach((directorId, score) -> {
+                    for (Long filmId : filmsByDirector.getOrDefault(directorId, Collections.emptySet())) {
+                        scores.merge(filmId, score, Math::max);
+                    }
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed()))
+                .skip(offset)
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    public void putFilm(long filmId, String name, Set<Long> directorIds) {
+        lock.writeLock().lock();
+        try {
+            titles.put(filmId, tokenize(name));
+            unlinkFilm(filmId);
+            for (Long directorId : directorIds) {
+                link(filmId, directorId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        lock.writeLock().lock();
+        try {
+            titles.remove(filmId);
+            unlinkFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putDirector(long directorId, String name) {
+        lock.writeLock().lock();
+        try {
+            directorNames.put(directorId, tokenize(name));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(long directorId) {
+        lock.writeLock().lock();
+        try {
+            directorNames.remove(directorId);
+            for (Long filmId : filmsByDirector.getOrDefault(directorId, Collections.emptySet())) {
+                directorsByFilm.get(filmId).remove(directorId);
+            }
+            filmsByDirector.remove(directorId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void link(long filmId, long directorId) {
+        directorsByFilm.computeIfAbsent(filmId, id -> new HashSet<>()).add(directorId);
+        filmsByDirector.computeIfAbsent(directorId, id -> new HashSet<>()).add(filmId);
+    }
+
+    private void unlinkFilm(long filmId) {
+        Set<Long> directorIds = directorsByFilm.remove(filmId);
+        if (directorIds == null) {
+            return;
+        }
+        for (Long directorId : directorIds) {
+            Set<Long> films = filmsByDirector.get(directorId);
+            films.remove(filmId);
+            if (films.isEmpty()) {
+                filmsByDirector.remove(directorId);
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    static boolean withinOneEdit(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > 1) {
+            return false;
+        }
+        int i = 0;
+        int j = 0;
+        boolean edited = false;
+        while (i < a.length() && j < b.length()) {
+            if (a.charAt(i) == b.charAt(j)) {
+                i++;
+                j++;
+                continue;
+            }
+            if (edited) {
+                return false;
+            }
+            edited = true;
+            if (a.length() > b.length()) {
+                i++;
+            } else if (a.length() < b.length()) {
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return !edited || (i == a.length() && j == b.length());
+    }
+
+    /**
+     * Words of one field. Words are kept sorted for prefix lookups, and every word is also indexed by its
+     * three-letter fragments, so a match inside a word only checks words sharing all fragments of the query.
+     * Words long enough for typo matching are also indexed by themselves with each one letter deleted: two
+     * words one edit apart always share such a key, so typo lookups only check words sharing a key.
+     */
+    private static class TermIndex {
+        private final NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+        private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+        private final Map<String, Set<String>> termsByDeletion = new HashMap<>();
+        private final Map<Long, List<String>> termsById = new HashMap<>();
+
+        void clear() {
+            postings.clear();
+            termsByTrigram.clear();
+            termsByDeletion.clear();
+            termsById.clear();
+        }
+
+        void put(long id, List<String> terms) {
+            remove(id);
+            termsById.put(id, terms);
+            for (String term : terms) {
+                Set<Long> ids = postings.get(term);
+                if (ids == null) {
+                    ids = new HashSet<>();
+                    postings.put(term, ids);
+                    for (String trigram : trigrams(term)) {
+                        termsByTrigram.computeIfAbsent(trigram, t -> new HashSet<>()).add(term);
+                    }
+                    for (String deletion : deletions(term)) {
+                        termsByDeletion.computeIfAbsent(deletion, d -> new HashSet<>()).add(term);
+                    }
+                }
+                ids.add(id);
+            }
+        }
+
+        void remove(long id) {
+            List<String> terms = termsById.remove(id);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms) {
+                Set<Long> ids = postings.get(term);
+                if (ids == null || !ids.remove(id) || !ids.isEmpty()) {
+                    continue;
+                }
+                postings.remove(term);
+                for (String trigram : trigrams(term)) {
+                    unlink(termsByTrigram, trigram, term);
+                }
+                for (String deletion : deletions(term)) {
+                    unlink(termsByDeletion, deletion, term);
+                }
+            }
+        }
+
+        /**
+         * Returns ids whose words match every query word, scored by the sum of the best match per query word.
+         */
+        Map<Long, Double> match(List<String> words) {
+            Map<Long, Double> result = null;
+            for (String word : words) {
+                Map<Long, Double> wordScores = match(word);
+                if (result == null) {
+                    result = wordScores;
+                } else {
+                    result.keySet().retainAll(wordScores.keySet());
+                    result.replaceAll((id, score) -> score + wordScores.get(id));
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result == null ? new HashMap<>() : result;
+        }
+
+        private Map<Long, Double> match(String word) {
+            Map<Long, Double> scores = new HashMap<>();
+            addAll(scores, postings.get(word), EXACT_SCORE);
+            for (Map.Entry<String, Set<Long>> entry
+                    : postings.subMap(word, false, word + Character.MAX_VALUE, false).entrySet()) {
+                addAll(scores, entry.getValue(), PREFIX_SCORE);
+            }
+            for (String term : infixCandidates(word)) {
+                if (!term.startsWith(word) && term.contains(word)) {
+                    addAll(scores, postings.get(term), INFIX_SCORE);
+                }
+            }
+            if (scores.isEmpty() && word.length() >= MIN_TYPO_LENGTH) {
+                for (String term : typoCandidates(word)) {
+                    if (withinOneEdit(word, term)) {
+                        addAll(scores, postings.get(term), TYPO_SCORE);
+                    }
+                }
+            }
+            return scores;
+        }
+
+        private Collection<String> infixCandidates(String word) {
+            if (word.length() < 3) {
+                return Collections.emptySet();
+            }
+            Set<String> candidates = null;
+            for (String trigram : trigrams(word)) {
+                Set<String> terms = termsByTrigram.get(trigram);
+                if (terms == null) {
+                    return Collections.emptySet();
+                }
+                if (candidates == null || terms.size() < candidates.size()) {
+                    candidates = terms;
+                }
+            }
+            return candidates;
+        }
+
+        private Collection<String> typoCandidates(String word) {
+            Set<String> candidates = new HashSet<>();
+            for (String deletion : deletions(word)) {
+                candidates.addAll(termsByDeletion.getOrDefault(deletion, Collections.emptySet()));
+            }
+            return candidates;
+        }
+
+        private static void unlink(Map<String, Set<String>> termsByKey, String key, String term) {
+            Set<String> terms = termsByKey.get(key);
+            terms.remove(term);
+            if (terms.isEmpty()) {
+                termsByKey.remove(key);
+            }
+        }
+
+        private static void addAll(Map<Long, Double> scores, Set<Long> ids, double score) {
+            if (ids == null) {
+                return;
+            }
+            for (Long id : ids) {
+                scores.merge(id, score, Math::max);
+            }
+        }
+
+        private static Set<String> trigrams(String term) {
+            Set<String> trigrams = new HashSet<>();
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                trigrams.add(term.substring(i, i + 3));
+            }
+            return trigrams;
+        }
+
+        /**
+         * Returns the word itself and the word with each one letter deleted, or nothing for words too short
+         * to be one typo away from a word typo matching looks up.
+         */
+        private static Set<String> deletions(String term) {
+            Set<String> deletions = new HashSet<>();
+            if (term.length() < MIN_TYPO_LENGTH - 1) {
+                return deletions;
+            }
+            deletions.add(term);
+            for (int i = 0; i < term.length(); i++) {
+                deletions.add(term.substring(0, i) + term.substring(i + 1));
+            }
+            return deletions;
+        }
+    }
+}
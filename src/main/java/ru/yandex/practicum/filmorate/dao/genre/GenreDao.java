@@ -2,8 +2,11 @@ package ru.yandex.practicum.filmorate.dao.genre;
 
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface GenreDao {
 
@@ -13,4 +16,14 @@ public interface GenreDao {
 
     List<Genre> findByFilmId(Long id);
 
+    Map<Long, Set<Genre>> findByFilmIds(Collection<Long> filmIds);
+
+    /**
+     * Returns genres with the given names, creating the missing ones.
+     *
+     * @param names of the genres.
+     * @return {@link Map} of genres by name.
+     */
+    Map<String, Genre> findOrCreateByNames(Collection<String> names);
+
 }
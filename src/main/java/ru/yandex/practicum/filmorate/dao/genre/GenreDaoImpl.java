@@ -3,15 +3,21 @@ package ru.yandex.practicum.filmorate.dao.genre;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.util.BatchInsert;
+import ru.yandex.practicum.filmorate.util.CachedLookup;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Repository
 public class GenreDaoImpl implements GenreDao {
@@ -19,24 +25,38 @@ public class GenreDaoImpl implements GenreDao {
     private static final String SELECT_GENRE_SQL = "SELECT * FROM genre WHERE id = ?";
     private static final String SELECT_GENRE_BY_FILM_SQL = "SELECT * FROM genre " +
             "WHERE id in (SELECT genre_id FROM film_genre WHERE film_id = ?) ORDER BY id";
+    private static final String SELECT_GENRES_BY_IDS_SQL = "SELECT * FROM genre WHERE id = ANY(?)";
+    private static final String SELECT_GENRE_IDS_BY_FILMS_SQL = "SELECT film_id, genre_id FROM film_genre " +
+            "WHERE film_id = ANY(?)";
+    private static final String SELECT_GENRES_BY_NAMES_SQL = "SELECT * FROM genre WHERE name = ANY(?)";
+    private static final String INSERT_GENRE_SQL = "INSERT INTO genre(name) VALUES (?)";
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final BeanPropertyRowMapper<Genre> genreMapper = new BeanPropertyRowMapper<>(Genre.class);
     private final JdbcTemplate jdbcTemplate;
+    private final Cache genreCache;
+    private final Cache allGenresCache;
 
     @Autowired
-    public GenreDaoImpl(JdbcTemplate jdbcTemplate) {
+    public GenreDaoImpl(JdbcTemplate jdbcTemplate, CacheManager cacheManager) {
         this.jdbcTemplate = jdbcTemplate;
+        this.genreCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.GENRES));
+        this.allGenresCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.ALL_GENRES));
     }
 
     @Override
     public List<Genre> findAll() {
-        return jdbcTemplate.query(SELECT_ALL_SQL, genreMapper);
+        return CachedLookup.findList(allGenresCache, SimpleKey.EMPTY,
+                () -> jdbcTemplate.query(SELECT_ALL_SQL, genreMapper), GenreDaoImpl::copy);
     }
 
     @Override
     public Optional<Genre> findById(Long id) {
+        return CachedLookup.find(genreCache, id, Genre.class, () -> loadById(id), GenreDaoImpl::copy);
+    }
+
+    private Optional<Genre> loadById(Long id) {
         Genre genre = null;
         try {
             genre = jdbcTemplate.queryForObject(SELECT_GENRE_SQL, genreMapper, id);
@@ -51,4 +71,63 @@ public class GenreDaoImpl implements GenreDao {
     public List<Genre> findByFilmId(Long id) {
         return jdbcTemplate.query(SELECT_GENRE_BY_FILM_SQL, genreMapper, id);
     }
+
+    @Override
+    public Map<Long, Set<Genre>> findByFilmIds(Collection<Long> filmIds) {
+        Map<Long, Set<Genre>> genres = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return genres;
+        }
+        Map<Long, Set<Long>> genreIds = new HashMap<>();
+        jdbcTemplate.query(SELECT_GENRE_IDS_BY_FILMS_SQL, rs -> {
+            genreIds.computeIfAbsent(rs.getLong("film_id"), id -> new HashSet<>()).add(rs.getLong("genre_id"));
+        }, (Object) filmIds.toArray(new Long[0]));
+        Map<Long, Genre> genresById = findAllByIds(genreIds.values().stream()
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet()));
+        genreIds.forEach((filmId, ids) -> genres.put(filmId, ids.stream()
+                .map(genresById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet())));
+        return genres;
+    }
+
+    @Override
+    @Transactional
+    public Map<String, Genre> findOrCreateByNames(Collection<String> names) {
+        Map<String, Genre> genres = new HashMap<>();
+        if (names.isEmpty()) {
+            return genres;
+        }
+        jdbcTemplate.query(SELECT_GENRES_BY_NAMES_SQL, genreMapper, (Object) names.toArray(new String[0]))
+                .forEach(genre -> genres.put(genre.getName(), genre));
+        List<String> missing = names.stream()
+                .filter(name -> !genres.containsKey(name))
+                .collect(Collectors.toList());
+        List<Long> ids = BatchInsert.withKeys(jdbcTemplate, INSERT_GENRE_SQL, missing.stream()
+                .map(name -> new Object[]{name})
+                .collect(Collectors.toList()));
+        for (int i = 0; i < missing.size(); i++) {
+            Genre genre = new Genre();
+            genre.setId(ids.get(i));
+            genre.setName(missing.get(i));
+            genres.put(genre.getName(), genre);
+        }
+        CachedLookup.clear(allGenresCache);
+        return genres;
+    }
+
+    private Map<Long, Genre> findAllByIds(Collection<Long> ids) {
+        return CachedLookup.findAll(genreCache, ids, Genre.class,
+                missing -> jdbcTemplate.query(SELECT_GENRES_BY_IDS_SQL, genreMapper,
+                        (Object) missing.toArray(new Long[0])),
+                Genre::getId, GenreDaoImpl::copy);
+    }
+
+    private static Genre copy(Genre genre) {
+        Genre copy = new Genre();
+        copy.setId(genre.getId());
+        copy.setName(genre.getName());
+        return copy;
+    }
 }
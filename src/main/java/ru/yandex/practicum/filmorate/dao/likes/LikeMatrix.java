@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.dao.likes;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory user by film like matrix. Likes are kept twice, as film ids per user and as user ids
+ * per film, so both rows and columns can be walked without the database. Both are growable
+ * primitive sets changed in place, so a like costs the same however popular the film is.
+ */
+@Component
+public class LikeMatrix {
+
+    private static final String SELECT_LIKES_SQL = "SELECT user_id, film_id FROM film_likes";
+    private static final LongHashSet EMPTY = new LongHashSet();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, LongHashSet> filmsByUser = new HashMap<>();
+    private final Map<Long, LongHashSet> usersByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public LikeMatrix(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<Long, LongHashSet> films = new HashMap<>();
+        Map<Long, LongHashSet> users = new HashMap<>();
+        jdbcTemplate.query(SELECT_LIKES_SQL, rs -> {
+            long userId = rs.getLong("user_id");
+            long filmId = rs.getLong("film_id");
+            films.computeIfAbsent(userId, id -> new LongHashSet()).add(filmId);
+            users.computeIfAbsent(filmId, id -> new LongHashSet()).add(userId);
+        });
+        lock.writeLock().lock();
+        try {
+            filmsByUser.clear();
+            usersByFilm.clear();
+            filmsByUser.putAll(films);
+            usersByFilm.putAll(users);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long userId, long filmId) {
+        lock.readLock().lock();
+        try {
+            return filmsByUser.getOrDefault(userId, EMPTY).contains(filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(long userId, long filmId) {
+        lock.writeLock().lock();
+        try {
+            filmsByUser.computeIfAbsent(userId, id -> new LongHashSet()).add(filmId);
+            usersByFilm.computeIfAbsent(filmId, id -> new LongHashSet()).add(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long userId, long filmId) {
+        lock.writeLock().lock();
+        try {
+            removeFrom(filmsByUser, userId, filmId);
+            removeFrom(usersByFilm, filmId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(long userId) {
+        lock.writeLock().lock();
+        try {
+            LongHashSet films = filmsByUser.remove(userId);
+            if (films != null) {
+                films.forEachWhile(filmId -> {
+                    removeFrom(usersByFilm, filmId, userId);
+                    return true;
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        lock.writeLock().lock();
+        try {
+            LongHashSet users = usersByFilm.remove(filmId);
+            if (users != null) {
+                users.forEachWhile(userId -> {
+                    removeFrom(filmsByUser, userId, filmId);
+                    return true;
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recommends films for the user. Users who liked at least one of the same films are ranked by
+     * Jaccard similarity of their likes, and films liked by the closest of them but not by the user
+     * are scored with the sum of similarities of the users who liked them.
+     * <p>
+     * At most {@code maxScannedLikes} likes of other users are walked to find them. The user's films
+     * are walked least liked first and each gets an even share of what is left, so a blockbuster
+     * contributes a sample of its likers instead of all of them.
+     *
+     * @param userId          id of the user to recommend films to.
+     * @param neighbourCount  how many of the most similar users are taken into account.
+     * @param maxScannedLikes how many likes of other users are walked at most to find similar users.
+     * @return ids of recommended films, best first, or empty {@link List}.
+     */
+    public List<Long> recommend(long userId, int neighbourCount, int maxScannedLikes) {
+        lock.readLock().lock();
+        try {
+            LongHashSet userFilms = filmsByUser.getOrDefault(userId, EMPTY);
+            if (userFilms.isEmpty() || neighbourCount <= 0) {
+                return new ArrayList<>();
+            }
+            long[] filmIds = userFilms.toArray();
+            LongHashSet[] likers = new LongHashSet[filmIds.length];
+            for (int i = 0; i < filmIds.length; i++) {
+                likers[i] = usersByFilm.getOrDefault(filmIds[i], EMPTY);
+            }
+            Arrays.sort(likers, Comparator.comparingInt(LongHashSet::size));
+            Map<Long, Integer> overlaps = new HashMap<>();
+            int budget = maxScannedLikes;
+            for (int i = 0; i < likers.length && budget > 0; i++) {
+                int[] share = {Math.max(1, budget / (likers.length - i))};
+                budget -= share[0];
+                likers[i].forEachWhile(otherId -> {
+                    if (otherId != userId) {
+                        overlaps.merge(otherId, 1, Integer::sum);
+                    }
+                    return --share[0] > 0;
+                });
+                budget += share[0];
+            }
+            PriorityQueue<Neighbour> nearest = new PriorityQueue<>(Neighbour.WORST_FIRST);
+            overlaps.forEach((otherId, overlap) -> {
+                int otherSize = filmsByUser.get(otherId).size();
+                nearest.add(new Neighbour(otherId, (double) overlap / (userFilms.size() + otherSize - overlap)));
+                if (nearest.size() > neighbourCount) {
+                    nearest.poll();
+                }
+            });
+            Map<Long, Double> scores = new HashMap<>();
+            for (Neighbour neighbour : nearest) {
+                filmsByUser.get(neighbour.userId).forEachWhile(filmId -> {
+                    if (!userFilms.contains(filmId)) {
+                        scores.merge(filmId, neighbour.similarity, Double::sum);
+                    }
+                    return true;
+                });
+            }
+            List<Long> recommended = new ArrayList<>(scores.keySet());
+            recommended.sort(Comparator.comparingDouble((Long filmId) -> -scores.get(filmId))
+                    .thenComparing(Comparator.naturalOrder()));
+            return recommended;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void removeFrom(Map<Long, LongHashSet> index, long key, long value) {
+        LongHashSet set = index.get(key);
+        if (set != null && set.remove(value) && set.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static final class Neighbour {
+        private static final Comparator<Neighbour> WORST_FIRST = Comparator
+                .comparingDouble((Neighbour n) -> n.similarity)
+                .thenComparing(n -> -n.userId);
+
+        private final long userId;
+        private final double similarity;
+
+        private Neighbour(long userId, double similarity) {
+            this.userId = userId;
+            this.similarity = similarity;
+        }
+    }
+}
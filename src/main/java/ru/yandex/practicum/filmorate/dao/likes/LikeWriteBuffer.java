@@ -0,0 +1,293 @@
+package ru.yandex.practicum.filmorate.dao.likes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.event.EventDao;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional write-behind mode for film likes. A like or unlike is applied to {@link PopularFilmsRanking}
+ * and {@link LikeMatrix} right away and queued per film; a like followed by an unlike of the same film
+ * cancels out before it reaches the database. The queue is written in one transaction of batched
+ * statements every {@code flush-interval}, as soon as it holds {@code flush-size} operations and on
+ * shutdown. Feed events are published once the flush writing their likes has committed.
+ * <p>
+ * Reads served from the in-memory structures (likes state, popular films, recommendations) see queued
+ * likes at once; queries reading {@code film_likes} directly see them after the next flush.
+ * <p>
+ * Likes of a failed flush go back to the queue and are written with the next one. Likes that turn out
+ * to change nothing, e.g. because the film or the user was deleted meanwhile, are taken back from the
+ * in-memory structures after the flush commits, and their events are never published.
+ */
+@Component
+public class LikeWriteBuffer {
+
+    private static final String INSERT_LIKE_SQL = "INSERT INTO film_likes(user_id, film_id) " +
+            "SELECT u.id, f.id FROM app_user u, film f WHERE u.id = ? AND f.id = ? " +
+            "AND NOT EXISTS(SELECT * FROM film_likes l WHERE l.user_id = u.id AND l.film_id = f.id)";
+    private static final String DELETE_LIKE_SQL = "DELETE FROM film_likes WHERE user_id = ? AND film_id = ?";
+    private static final String UPDATE_LIKES_COUNT_SQL = "UPDATE film SET likes_count = likes_count + ? WHERE id = ?";
+    private static final String IS_LIKED_SQL = "SELECT EXISTS(SELECT * FROM film_likes " +
+            "WHERE user_id = ? AND film_id = ?)";
+    private static final int SHUTDOWN_FLUSH_ATTEMPTS = 3;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PopularFilmsRanking ranking;
+    private final LikeMatrix likeMatrix;
+    private final EventDao eventDao;
+    private final boolean enabled;
+    private final Duration flushInterval;
+    private final int flushSize;
+
+    private final Object mutex = new Object();
+    private final Object flushMutex = new Object();
+    private Map<Long, Map<Long, Boolean>> pending = new HashMap<>();
+    private int pendingCount;
+    private List<Event> pendingEvents = new ArrayList<>();
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public LikeWriteBuffer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           PopularFilmsRanking ranking, LikeMatrix likeMatrix, EventDao eventDao,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.flush-interval:200ms}") Duration flushInterval,
+                           @Value("${filmorate.likes.write-behind.flush-size:1000}") int flushSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ranking = ranking;
+        this.likeMatrix = likeMatrix;
+        this.eventDao = eventDao;
+        this.enabled = enabled;
+        this.flushInterval = flushInterval;
+        this.flushSize = flushSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "like-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Write-behind likes enabled, flush every {} ms or {} operations", intervalMillis, flushSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(flushInterval.toMillis() * 10, TimeUnit.MILLISECONDS);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                flush();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == SHUTDOWN_FLUSH_ATTEMPTS) {
+                    synchronized (mutex) {
+                        log.error("Failed to flush buffered likes on shutdown, {} likes are lost", pendingCount, e);
+                    }
+                    return;
+                }
+                log.warn("Failed to flush buffered likes on shutdown, retrying", e);
+                Thread.sleep(flushInterval.toMillis());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a like or an unlike unless the user's like is already in the requested state.
+     *
+     * @param userId of the user.
+     * @param filmId of the film.
+     * @param like   true to like the film, false to remove the like.
+     * @return true if the like state changed, false otherwise.
+     */
+    public boolean put(long userId, long filmId, boolean like) {
+        ranking.loadFilm(filmId);
+        boolean flushNow;
+        synchronized (mutex) {
+            if (likeMatrix.contains(userId, filmId) == like) {
+                return false;
+            }
+            queue(userId, filmId, like);
+            if (like) {
+                likeMatrix.add(userId, filmId);
+            } else {
+                likeMatrix.remove(userId, filmId);
+            }
+            ranking.changeUnwrittenLikes(filmId, like ? 1 : -1);
+            pendingEvents.add(new Event(userId, Event.EventType.LIKE,
+                    like ? Event.Operation.ADD : Event.Operation.REMOVE, filmId));
+            flushNow = flusher != null && pendingCount >= flushSize;
+        }
+        if (flushNow) {
+            flusher.execute(this::flushQuietly);
+        }
+        return true;
+    }
+
+    /**
+     * Writes all queued likes to the database, waits until they are committed and publishes their events.
+     * If the write fails, the likes and events are queued again.
+     */
+    public void flush() {
+        synchronized (flushMutex) {
+            Map<Long, Map<Long, Boolean>> likes;
+            List<Event> events;
+            synchronized (mutex) {
+                if (pending.isEmpty() && pendingEvents.isEmpty()) {
+                    return;
+                }
+                likes = pending;
+                events = pendingEvents;
+                pending = new HashMap<>();
+                pendingEvents = new ArrayList<>();
+                pendingCount = 0;
+            }
+            List<Object[]> unchanged;
+            try {
+                unchanged = transactionTemplate.execute(status -> write(likes));
+            } catch (RuntimeException e) {
+                requeue(likes, events);
+                throw e;
+            }
+            reconcile(unchanged, events);
+            events.forEach(eventDao::addEvent);
+            log.debug("Flushed likes of {} films", likes.size());
+        }
+    }
+
+    /**
+     * Adds the operation to the queue or cancels it against the opposite one queued for the same like.
+     */
+    private void queue(long userId, long filmId, boolean like) {
+        Map<Long, Boolean> filmPending = pending.computeIfAbsent(filmId, id -> new HashMap<>());
+        if (filmPending.remove(userId) == null) {
+            filmPending.put(userId, like);
+            pendingCount++;
+        } else {
+            pendingCount--;
+            if (filmPending.isEmpty()) {
+                pending.remove(filmId);
+            }
+        }
+    }
+
+    private void requeue(Map<Long, Map<Long, Boolean>> likes, List<Event> events) {
+        synchronized (mutex) {
+            likes.forEach((filmId, users) -> users.forEach((userId, like) -> queue(userId, filmId, like)));
+            events.addAll(pendingEvents);
+            pendingEvents = events;
+        }
+    }
+
+    /**
+     * Takes back likes and unlikes that changed no rows. The ranking is moved back as {@code likes_count}
+     * did not change. An unwritten like leaves the like matrix unless the like is in the database already.
+     * The latest event of every such operation is dropped from the events to publish.
+     */
+    private void reconcile(List<Object[]> unchanged, List<Event> events) {
+        for (Object[] operation : unchanged) {
+            long userId = (Long) operation[0];
+            long filmId = (Long) operation[1];
+            boolean like = (Boolean) operation[2];
+            boolean unlike = like && !Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_LIKED_SQL,
+                    Boolean.class, userId, filmId));
+            if (unlike) {
+                synchronized (mutex) {
+                    likeMatrix.remove(userId, filmId);
+                }
+            }
+            ranking.changeLikes(filmId, like ? -1 : 1);
+            retract(events, userId, filmId, like ? Event.Operation.ADD : Event.Operation.REMOVE);
+        }
+        if (!unchanged.isEmpty()) {
+            log.debug("{} buffered likes changed nothing and were taken back", unchanged.size());
+        }
+    }
+
+    /**
+     * Writes the likes and returns the operations that changed no rows as {userId, filmId, like}.
+     */
+    private List<Object[]> write(Map<Long, Map<Long, Boolean>> likes) {
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        likes.forEach((filmId, users) -> users.forEach((userId, like) -> {
+            if (like) {
+                inserts.add(new Object[]{userId, filmId});
+            } else {
+                deletes.add(new Object[]{userId, filmId});
+            }
+        }));
+        Map<Long, Integer> deltas = new HashMap<>();
+        List<Object[]> unchanged = new ArrayList<>();
+        addDeltas(deltas, inserts, jdbcTemplate.batchUpdate(INSERT_LIKE_SQL, inserts), true, unchanged);
+        addDeltas(deltas, deletes, jdbcTemplate.batchUpdate(DELETE_LIKE_SQL, deletes), false, unchanged);
+        List<Object[]> counts = new ArrayList<>();
+        deltas.forEach((filmId, delta) -> {
+            if (delta != 0) {
+                counts.add(new Object[]{delta, filmId});
+            }
+        });
+        jdbcTemplate.batchUpdate(UPDATE_LIKES_COUNT_SQL, counts);
+        return unchanged;
+    }
+
+    private static void retract(List<Event> events, long userId, long filmId, Event.Operation operation) {
+        for (ListIterator<Event> it = events.listIterator(events.size()); it.hasPrevious(); ) {
+            Event event = it.previous();
+            if (event.getUserId() == userId && event.getEntityId() == filmId && event.getOperation() == operation) {
+                it.remove();
+                return;
+            }
+        }
+    }
+
+    private static void addDeltas(Map<Long, Integer> deltas, List<Object[]> likes, int[] rows, boolean like,
+                                  List<Object[]> unchanged) {
+        for (int i = 0; i < rows.length; i++) {
+            Long userId = (Long) likes.get(i)[0];
+            Long filmId = (Long) likes.get(i)[1];
+            if (rows[i] > 0) {
+                deltas.merge(filmId, like ? 1 : -1, Integer::sum);
+            } else {
+                unchanged.add(new Object[]{userId, filmId, like});
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to flush buffered likes", e);
+        }
+    }
+}
@@ -6,11 +6,25 @@ import java.util.List;
 
 public interface LikesDao {
 
-    void addLike(Long userId, Long filmId);
+    /**
+     * Adds the like and its feed event in one transaction unless the user already likes the film.
+     *
+     * @param userId of the user.
+     * @param filmId of the film.
+     * @return true if the like was added, false if it already existed.
+     */
+    boolean addLike(Long userId, Long filmId);
 
-    void removeLike(Long userId, Long filmId);
+    /**
+     * Removes the like and writes its feed event in one transaction if the user likes the film.
+     *
+     * @param userId of the user.
+     * @param filmId of the film.
+     * @return true if the like was removed, false if there was no like.
+     */
+    boolean removeLike(Long userId, Long filmId);
 
-    List<Film> getPopular(Long genreId, Integer year, int count);
+    void removeUserLikes(Long userId);
 
-    boolean isLikeExist(Long userId, Long filmId);
+    List<Film> getPopular(Long genreId, Integer year, int count);
 }
@@ -1,66 +1,106 @@
 package ru.yandex.practicum.filmorate.dao.likes;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
-import ru.yandex.practicum.filmorate.dao.director.DirectorDao;
-import ru.yandex.practicum.filmorate.dao.genre.GenreDao;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dao.event.EventDao;
+import ru.yandex.practicum.filmorate.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.AfterCommit;
 
-import java.util.HashSet;
 import java.util.List;
 
 @Repository
 public class LikesDaoImpl implements LikesDao {
 
     private static final String DELETE_LIKE_SQL = "DELETE FROM film_likes WHERE user_id = ? AND film_id = ?";
-    private static final String INSERT_LIKE_SQL = "INSERT INTO film_likes values ( ? , ? )";
-    private static final String SELECT_LIKE_EXIST = "SELECT EXISTS(" +
-        "SELECT * FROM film_likes WHERE user_id = ? AND film_id = ?)";
-    private static final String SELECT_POPULAR_SQL = "SELECT DISTINCT f.*, m.name AS mpa_name, " +
-            "(SELECT COUNT(user_id) FROM film_likes fl WHERE fl.film_id = f.id) AS likes " +
-            "FROM film f LEFT JOIN mpa m ON m.id = f.mpa_id LEFT JOIN film_genre fg ON fg.film_id = f.id " +
-            "WHERE NVL(?, NVL(fg.genre_id, -1)) = NVL(fg.genre_id, -1) " +
-            "AND NVL(?, YEAR(release_date)) = YEAR(release_date) " +
-            "ORDER BY likes DESC LIMIT ?";
+    private static final String INSERT_LIKE_SQL = "INSERT INTO film_likes(user_id, film_id) SELECT ?, ? " +
+            "WHERE NOT EXISTS(SELECT * FROM film_likes WHERE user_id = ? AND film_id = ?)";
+    private static final String UPDATE_LIKES_COUNT_SQL = "UPDATE film SET likes_count = likes_count + ? WHERE id = ?";
+    private static final String SELECT_USER_FILMS_SQL = "SELECT film_id FROM film_likes WHERE user_id = ?";
+    private static final String DECREMENT_USER_FILMS_LIKES_SQL = "UPDATE film SET likes_count = likes_count - 1 " +
+            "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)";
+    private static final String DELETE_USER_LIKES_SQL = "DELETE FROM film_likes WHERE user_id = ?";
 
     private final JdbcTemplate jdbcTemplate;
-    private final RowMapper<Film> rowMapper;
-    private final GenreDao genreDao;
-    private final DirectorDao directorDao;
+    private final FilmDao filmDao;
+    private final PopularFilmsRanking ranking;
+    private final LikeMatrix likeMatrix;
+    private final EventDao eventDao;
+    private final LikeWriteBuffer writeBuffer;
 
     @Autowired
-    public LikesDaoImpl(JdbcTemplate jdbcTemplate, RowMapper<Film> filmMapper,
-                        GenreDao genreDao, DirectorDao directorDao) {
+    public LikesDaoImpl(JdbcTemplate jdbcTemplate, FilmDao filmDao, PopularFilmsRanking ranking,
+                        LikeMatrix likeMatrix, EventDao eventDao, LikeWriteBuffer writeBuffer) {
         this.jdbcTemplate = jdbcTemplate;
-        this.rowMapper = filmMapper;
-        this.genreDao = genreDao;
-        this.directorDao = directorDao;
+        this.filmDao = filmDao;
+        this.ranking = ranking;
+        this.likeMatrix = likeMatrix;
+        this.eventDao = eventDao;
+        this.writeBuffer = writeBuffer;
     }
 
     @Override
-    public void addLike(Long userId, Long filmId) {
-        jdbcTemplate.update(INSERT_LIKE_SQL, userId, filmId);
+    @Transactional
+    public boolean addLike(Long userId, Long filmId) {
+        if (writeBuffer.isEnabled()) {
+            return writeBuffer.put(userId, filmId, true);
+        }
+        try {
+            if (jdbcTemplate.update(INSERT_LIKE_SQL, userId, filmId, userId, filmId) == 0) {
+                return false;
+            }
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        jdbcTemplate.update(UPDATE_LIKES_COUNT_SQL, 1, filmId);
+        eventDao.addEvent(new Event(userId, Event.EventType.LIKE, Event.Operation.ADD, filmId));
+        AfterCommit.run(() -> {
+            ranking.changeLikes(filmId, 1);
+            likeMatrix.add(userId, filmId);
+        });
+        return true;
     }
 
     @Override
-    public void removeLike(Long userId, Long filmId) {
-        jdbcTemplate.update(DELETE_LIKE_SQL, userId, filmId);
+    @Transactional
+    public boolean removeLike(Long userId, Long filmId) {
+        if (writeBuffer.isEnabled()) {
+            return writeBuffer.put(userId, filmId, false);
+        }
+        if (jdbcTemplate.update(DELETE_LIKE_SQL, userId, filmId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(UPDATE_LIKES_COUNT_SQL, -1, filmId);
+        eventDao.addEvent(new Event(userId, Event.EventType.LIKE, Event.Operation.REMOVE, filmId));
+        AfterCommit.run(() -> {
+            ranking.changeLikes(filmId, -1);
+            likeMatrix.remove(userId, filmId);
+        });
+        return true;
     }
 
     @Override
-    public List<Film> getPopular(Long genreId, Integer year, int count) {
-        List<Film> films = jdbcTemplate.query(SELECT_POPULAR_SQL, rowMapper, genreId, year, count);
-        for (Film film : films) {
-            film.setGenres(new HashSet<>(genreDao.findByFilmId(film.getId())));
-            film.setDirectors(new HashSet<>(directorDao.findByFilmId(film.getId())));
+    @Transactional
+    public void removeUserLikes(Long userId) {
+        writeBuffer.flush();
+        List<Long> filmIds = jdbcTemplate.queryForList(SELECT_USER_FILMS_SQL, Long.class, userId);
+        if (filmIds.isEmpty()) {
+            return;
         }
-        return films;
+        jdbcTemplate.update(DECREMENT_USER_FILMS_LIKES_SQL, userId);
+        jdbcTemplate.update(DELETE_USER_LIKES_SQL, userId);
+        AfterCommit.run(() -> {
+            filmIds.forEach(filmId -> ranking.changeLikes(filmId, -1));
+            likeMatrix.removeUser(userId);
+        });
     }
 
     @Override
-    public boolean isLikeExist(Long userId, Long filmId) {
-        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(SELECT_LIKE_EXIST, Boolean.class, userId, filmId));
+    public List<Film> getPopular(Long genreId, Integer year, int count) {
+        return filmDao.findAllByIds(ranking.findTop(genreId, year, count));
     }
 }
@@ -0,0 +1,237 @@
+package ru.yandex.practicum.filmorate.dao.likes;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory ranking of films by likes. Every film is kept in the buckets it can be selected by:
+ * all films, its release year, each of its genres and each genre with the release year.
+ * A popular query reads the first films of one bucket and does not touch the database.
+ */
+@Component
+public class PopularFilmsRanking {
+
+    private static final String SELECT_FILMS_SQL = "SELECT id, likes_count, YEAR(release_date) AS release_year "
+            + "FROM film";
+    private static final String SELECT_FILM_GENRES_SQL = "SELECT film_id, genre_id FROM film_genre";
+    private static final String SELECT_FILM_SQL = SELECT_FILMS_SQL + " WHERE id = ?";
+    private static final String SELECT_GENRE_IDS_SQL = "SELECT genre_id FROM film_genre WHERE film_id = ?";
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong((Entry e) -> -e.likes)
+            .thenComparingLong(e -> e.filmId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<Long, NavigableSet<Entry>> buckets = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public PopularFilmsRanking(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<Long, Set<Long>> genres = new HashMap<>();
+        jdbcTemplate.query(SELECT_FILM_GENRES_SQL, rs -> {
+            genres.computeIfAbsent(rs.getLong("film_id"), id -> new HashSet<>()).add(rs.getLong("genre_id"));
+        });
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            buckets.clear();
+            jdbcTemplate.query(SELECT_FILMS_SQL, rs -> {
+                long filmId = rs.getLong("id");
+                add(new Entry(filmId, rs.getLong("likes_count"), rs.getInt("release_year"),
+                        genres.getOrDefault(filmId, Collections.emptySet())));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns ids of the most liked films, most liked first and by id for equal likes.
+     *
+     * @param genreId genre the films should have or null for any genre.
+     * @param year    release year of the films or null for any year.
+     * @param count   maximum number of ids to return.
+     * @return {@link List} of film ids or empty {@link List}.
+     */
+    public List<Long> findTop(Long genreId, Integer year, int count) {
+        lock.readLock().lock();
+        try {
+            if ((genreId != null && genreId <= 0) || (year != null && (year <= 0 || year > 0xFFFF))) {
+                return new ArrayList<>();
+            }
+            NavigableSet<Entry> bucket = buckets.get(bucketKey(genreId, year));
+            if (bucket == null || count <= 0) {
+                return new ArrayList<>();
+            }
+            List<Long> ids = new ArrayList<>(Math.min(count, bucket.size()));
+            for (Entry entry : bucket) {
+                if (ids.size() == count) {
+                    break;
+                }
+                ids.add(entry.filmId);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the film or moves it to the buckets of its new release year and genres, keeping its likes.
+     */
+    public void putFilm(long filmId, int year, Set<Long> genreIds) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.get(filmId);
+            if (previous != null) {
+                remove(previous);
+            }
+            add(new Entry(filmId, previous == null ? 0 : previous.likes, year, genreIds));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.get(filmId);
+            if (previous != null) {
+                remove(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a committed change of the film's likes. A film missing from the ranking, e.g. when the like
+     * commits before the film's own after-commit callback has run, is read from the database, whose
+     * {@code likes_count} already contains the change.
+     */
+    public void changeLikes(long filmId, long delta) {
+        if (addLikes(filmId, delta)) {
+            return;
+        }
+        // the film may be added while it is read, from a likes_count that already holds this change
+        loadFilm(filmId);
+    }
+
+    /**
+     * Applies a change of the film's likes that is not written yet. Does not touch the database: a film
+     * missing from the ranking is skipped, so {@link #loadFilm} is called before the change is queued.
+     */
+    public void changeUnwrittenLikes(long filmId, long delta) {
+        addLikes(filmId, delta);
+    }
+
+    /**
+     * Reads the film from the database unless it is ranked already.
+     */
+    public void loadFilm(long filmId) {
+        lock.readLock().lock();
+        try {
+            if (entries.containsKey(filmId)) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Entry loaded = loadEntry(filmId);
+        if (loaded == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!entries.containsKey(filmId)) {
+                add(loaded);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean addLikes(long filmId, long delta) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.get(filmId);
+            if (previous == null) {
+                return false;
+            }
+            remove(previous);
+            add(new Entry(filmId, previous.likes + delta, previous.year, previous.genreIds));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Entry loadEntry(long filmId) {
+        List<long[]> films = jdbcTemplate.query(SELECT_FILM_SQL,
+                (rs, rowNum) -> new long[]{rs.getLong("likes_count"), rs.getInt("release_year")}, filmId);
+        if (films.isEmpty()) {
+            return null;
+        }
+        Set<Long> genreIds = new HashSet<>(jdbcTemplate.queryForList(SELECT_GENRE_IDS_SQL, Long.class, filmId));
+        return new Entry(filmId, films.get(0)[0], (int) films.get(0)[1], genreIds);
+    }
+
+    private void add(Entry entry) {
+        entries.put(entry.filmId, entry);
+        for (long key : bucketKeys(entry)) {
+            buckets.computeIfAbsent(key, k -> new TreeSet<>(ORDER)).add(entry);
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.filmId);
+        for (long key : bucketKeys(entry)) {
+            NavigableSet<Entry> bucket = buckets.get(key);
+            bucket.remove(entry);
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    private static long[] bucketKeys(Entry entry) {
+        long[] keys = new long[2 + entry.genreIds.size() * 2];
+        int i = 0;
+        keys[i++] = bucketKey(null, null);
+        keys[i++] = bucketKey(null, entry.year);
+        for (Long genreId : entry.genreIds) {
+            keys[i++] = bucketKey(genreId, null);
+            keys[i++] = bucketKey(genreId, entry.year);
+        }
+        return keys;
+    }
+
+    private static long bucketKey(Long genreId, Integer year) {
+        // genre id in the high bits, year in the low 16 bits, zero stands for "any"
+        return ((genreId == null ? 0L : genreId) << 16) | (year == null ? 0 : year);
+    }
+
+    private static final class Entry {
+        private final long filmId;
+        private final long likes;
+        private final int year;
+        private final Set<Long> genreIds;
+
+        private Entry(long filmId, long likes, int year, Set<Long> genreIds) {
+            this.filmId = filmId;
+            this.likes = likes;
+            this.year = year;
+            this.genreIds = genreIds;
+        }
+    }
+}
@@ -3,14 +3,20 @@ package ru.yandex.practicum.filmorate.dao.mpa;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.util.CachedLookup;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Repository
@@ -23,20 +29,29 @@ public class MpaDaoImpl implements MpaDao {
 
     private final BeanPropertyRowMapper<Mpa> mpaMapper = new BeanPropertyRowMapper<>(Mpa.class);
     private final JdbcTemplate jdbcTemplate;
+    private final Cache mpaCache;
+    private final Cache allMpaCache;
 
     @Autowired
-    public MpaDaoImpl(JdbcTemplate jdbcTemplate) {
+    public MpaDaoImpl(JdbcTemplate jdbcTemplate, CacheManager cacheManager) {
         this.jdbcTemplate = jdbcTemplate;
+        this.mpaCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.MPA));
+        this.allMpaCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.ALL_MPA));
     }
 
     @Override
     public List<Mpa> findAll() {
-        return jdbcTemplate.query(SELECT_ALL_SQL, mpaMapper);
+        return CachedLookup.findList(allMpaCache, SimpleKey.EMPTY,
+                () -> jdbcTemplate.query(SELECT_ALL_SQL, mpaMapper), MpaDaoImpl::copy);
     }
 
     @Override
     @Transactional
     public Optional<Mpa> findById(Long id) {
+        return CachedLookup.find(mpaCache, id, Mpa.class, () -> loadById(id), MpaDaoImpl::copy);
+    }
+
+    private Optional<Mpa> loadById(Long id) {
         Mpa mpa = null;
         try {
             mpa = jdbcTemplate.queryForObject(SELECT_MPA_SQL, mpaMapper, id);
@@ -45,4 +60,11 @@ public class MpaDaoImpl implements MpaDao {
         }
         return Optional.ofNullable(mpa);
     }
+
+    private static Mpa copy(Mpa mpa) {
+        Mpa copy = new Mpa();
+        copy.setId(mpa.getId());
+        copy.setName(mpa.getName());
+        return copy;
+    }
 }
@@ -4,7 +4,11 @@ import java.util.List;
 
 public interface RecommendationDao {
 
-    List<Long> getEqualUserIds(Long id);
-
-    List<Long> getAbsentFilms(Long id, List<Long> friendId);
+    /**
+     * Returns ids of films liked by the users with the most similar likes that the given user has not liked.
+     *
+     * @param id of the user to recommend films to.
+     * @return {@link List} of film ids, best first, or empty {@link List}.
+     */
+    List<Long> findRecommendedFilmIds(Long id);
 }
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.dao.review;
 
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewVote;
 
 import java.util.List;
 import java.util.Optional;
@@ -55,9 +56,39 @@ public interface ReviewDao {
      */
     void deleteById(Long id);
 
+    /**
+     * Saves the user's vote and adds it to the usefulness of the review.
+     *
+     * @param reviewId of the review.
+     * @param userId   of the voting user.
+     * @param isLike   true for a like, false for a dislike.
+     */
     void addLike(Long reviewId, Long userId, Boolean isLike);
 
-    void removeLike(Long reviewId, Long userId);
+    /**
+     * Removes the user's vote of the given kind and takes it back from the usefulness of the review.
+     *
+     * @param reviewId of the review.
+     * @param userId   of the voting user.
+     * @param isLike   true for a like, false for a dislike.
+     */
+    void removeLike(Long reviewId, Long userId, Boolean isLike);
+
+    /**
+     * Applies the votes in order, each replacing the user's previous vote for the review, and sets the
+     * {@link ReviewVote.Status} of every vote. Votes for missing reviews or by missing users are skipped.
+     *
+     * @param votes the votes to be applied.
+     * @return the same votes with their status set.
+     */
+    List<ReviewVote> addLikes(List<ReviewVote> votes);
+
+    /**
+     * Removes all votes of the user, e.g. before the user is deleted.
+     *
+     * @param userId of the user.
+     */
+    void removeUserLikes(Long userId);
 
     boolean isLikeExist(Long reviewId, Long userId, Boolean isLike);
 
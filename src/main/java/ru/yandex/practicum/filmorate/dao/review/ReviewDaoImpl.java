@@ -3,53 +3,85 @@ package ru.yandex.practicum.filmorate.dao.review;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewVote;
+import ru.yandex.practicum.filmorate.util.AfterCommit;
+import ru.yandex.practicum.filmorate.util.IdPresence;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
 
 @Repository
 public class ReviewDaoImpl implements ReviewDao {
 
-    private static final String SELECT_DEFAULT_REVIEWS_SQL = "SELECT r.id as reviewId, r.content, r.is_positive, " +
-            "r.user_id, r.film_id, SUM(CASE WHEN l.is_like THEN 1 WHEN NOT l.is_like THEN -1 else 0 END) as useful " +
-            "FROM review r LEFT JOIN review_likes l ON l.review_id = r.id ";
-    private static final String SELECT_REVIEW_BY_ID_SQL = SELECT_DEFAULT_REVIEWS_SQL +
-            "WHERE r.id = nvl(?, r.id) GROUP BY r.id";
+    private static final String SELECT_DEFAULT_REVIEWS_SQL = "SELECT id as reviewId, content, is_positive, " +
+            "user_id, film_id, useful FROM review ";
+    private static final String SELECT_REVIEW_BY_ID_SQL = SELECT_DEFAULT_REVIEWS_SQL + "WHERE id = ?";
     private static final String SELECT_REVIEW_BY_FILM_SQL = SELECT_DEFAULT_REVIEWS_SQL +
-            "WHERE r.film_id = nvl(?, r.film_id) GROUP BY r.id ORDER BY useful DESC, r.id LIMIT ?";
+            "WHERE film_id = ? ORDER BY useful DESC, id LIMIT ?";
+    private static final String SELECT_TOP_REVIEWS_SQL = SELECT_DEFAULT_REVIEWS_SQL +
+            "ORDER BY useful DESC, id LIMIT ?";
     private static final String INSERT_REVIEW_SQL = "INSERT INTO review(content, is_positive, user_id, film_id)" +
             "VALUES (?, ?, ?, ?)";
     private static final String UPDATE_REVIEW_SQL = "UPDATE review SET content = ?, is_positive = ?, user_id = ?, " +
             "film_id = ? WHERE id = ?";
     private static final String INSERT_LIKE_SQL = "INSERT INTO review_likes (review_id, user_id, is_like) " +
             "VALUES(?, ?, ?)";
-    private static final String DELETE_LIKE_SQL = "DELETE FROM review_likes WHERE review_id = ? AND user_id = ?";
+    private static final String DELETE_LIKE_SQL = "DELETE FROM review_likes WHERE review_id = ? AND user_id = ? " +
+            "AND is_like = ?";
+    private static final String UPDATE_USEFUL_SQL = "UPDATE review SET useful = useful + ? WHERE id = ?";
+    private static final String SUBTRACT_USER_VOTES_SQL = "UPDATE review r SET useful = useful - " +
+            "(SELECT SUM(CASE WHEN l.is_like THEN 1 ELSE -1 END) FROM review_likes l " +
+            "WHERE l.review_id = r.id AND l.user_id = ?) " +
+            "WHERE id IN (SELECT review_id FROM review_likes WHERE user_id = ?)";
+    private static final String DELETE_USER_LIKES_SQL = "DELETE FROM review_likes WHERE user_id = ?";
+    private static final String LOCK_REVIEWS_SQL = "SELECT id FROM review WHERE id = ANY(?) FOR UPDATE";
+    private static final String SELECT_USER_IDS_SQL = "SELECT id FROM app_user WHERE id = ANY(?)";
+    private static final String SELECT_VOTES_SQL = "SELECT review_id, user_id, is_like FROM review_likes " +
+            "WHERE review_id = ANY(?) AND user_id = ANY(?)";
+    private static final String MERGE_LIKE_SQL = "MERGE INTO review_likes(review_id, user_id, is_like) " +
+            "KEY (review_id, user_id) VALUES (?, ?, ?)";
+    private static final String SELECT_REVIEWS_BY_IDS_SQL = SELECT_DEFAULT_REVIEWS_SQL + "WHERE id = ANY(?)";
     private static final String DELETE_REVIEW_SQL = "DELETE FROM review WHERE id = ?";
     private static final String IS_EXIST_SQL = "SELECT EXISTS(SELECT * FROM review WHERE id = ?)";
+    private static final String SELECT_IDS_SQL = "SELECT id FROM review";
     private static final String SELECT_LIKE_EXIST_SQL = "SELECT EXISTS(SELECT * FROM review_likes " +
             "WHERE is_like = ? AND review_id = ? AND user_id = ?)";
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final JdbcTemplate jdbcTemplate;
+    private final IdPresence idPresence;
+    private final ReviewLeaderboard leaderboard;
+    private final int voteChunkSize;
 
     private final BeanPropertyRowMapper<Review> reviewMapper = new BeanPropertyRowMapper<>(Review.class);
 
     @Autowired
-    public ReviewDaoImpl(JdbcTemplate jdbcTemplate) {
+    public ReviewDaoImpl(JdbcTemplate jdbcTemplate, ReviewLeaderboard leaderboard,
+                         @Value("${filmorate.reviews.vote-batch.chunk-size:500}") int voteChunkSize) {
         this.jdbcTemplate = jdbcTemplate;
+        this.leaderboard = leaderboard;
+        this.voteChunkSize = voteChunkSize;
+        this.idPresence = new IdPresence(jdbcTemplate, SELECT_IDS_SQL, IS_EXIST_SQL);
     }
 
     @Override
     public List<Review> findByFilmId(Long filmId, int count) {
+        List<Review> top = leaderboard.top(filmId, count);
+        if (top != null) {
+            return top;
+        }
+        if (filmId == null) {
+            return jdbcTemplate.query(SELECT_TOP_REVIEWS_SQL, reviewMapper, count);
+        }
         return jdbcTemplate.query(SELECT_REVIEW_BY_FILM_SQL, reviewMapper, filmId, count);
     }
 
@@ -79,33 +111,131 @@ public class ReviewDaoImpl implements ReviewDao {
         Long reviewId = Objects.requireNonNull(keyHolder.getKey()).longValue();
         review.setReviewId(reviewId);
         review.setUseful(0L);
+        AfterCommit.run(() -> {
+            idPresence.add(reviewId);
+            leaderboard.refresh(List.of(review));
+        });
         return review;
     }
 
     @Override
     public void updateReview(Long id, Review review) {
+        Optional<Review> previous = findById(id);
         jdbcTemplate.update(UPDATE_REVIEW_SQL, review.getContent(), review.getIsPositive(),
                 review.getUserId(), review.getFilmId(), id);
+        previous.ifPresent(this::refreshLeaderboard);
     }
 
     @Override
     public boolean existsById(Long id) {
-        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_EXIST_SQL, Boolean.class, id));
+        return idPresence.contains(id);
     }
 
     @Override
     public void deleteById(Long id) {
+        Optional<Review> review = findById(id);
         jdbcTemplate.update(DELETE_REVIEW_SQL, id);
+        AfterCommit.run(() -> {
+            idPresence.remove(id);
+            review.ifPresent(leaderboard::remove);
+        });
     }
 
     @Override
+    @Transactional
     public void addLike(Long reviewId, Long userId, Boolean isLike) {
         jdbcTemplate.update(INSERT_LIKE_SQL, reviewId, userId, isLike);
+        jdbcTemplate.update(UPDATE_USEFUL_SQL, isLike ? 1 : -1, reviewId);
+        findById(reviewId).ifPresent(this::refreshLeaderboard);
     }
 
     @Override
-    public void removeLike(Long reviewId, Long userId) {
-        jdbcTemplate.update(DELETE_LIKE_SQL, reviewId, userId);
+    @Transactional
+    public void removeLike(Long reviewId, Long userId, Boolean isLike) {
+        if (jdbcTemplate.update(DELETE_LIKE_SQL, reviewId, userId, isLike) > 0) {
+            jdbcTemplate.update(UPDATE_USEFUL_SQL, isLike ? -1 : 1, reviewId);
+            findById(reviewId).ifPresent(this::refreshLeaderboard);
+        }
+    }
+
+    /**
+     * Locks the reviews and reads the users and existing votes once for the whole batch, then replays the
+     * votes in memory. Only pairs whose final vote differs from the stored one are merged, in chunks of
+     * {@code vote-batch.chunk-size}, followed by one batched usefulness update.
+     */
+    @Override
+    @Transactional
+    public List<ReviewVote> addLikes(List<ReviewVote> votes) {
+        Set<Long> reviewIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (ReviewVote vote : votes) {
+            reviewIds.add(vote.getReviewId());
+            userIds.add(vote.getUserId());
+        }
+        Set<Long> reviews = new HashSet<>(jdbcTemplate.queryForList(LOCK_REVIEWS_SQL, Long.class,
+                (Object) reviewIds.toArray(new Long[0])));
+        Set<Long> users = new HashSet<>(jdbcTemplate.queryForList(SELECT_USER_IDS_SQL, Long.class,
+                (Object) userIds.toArray(new Long[0])));
+        Map<List<Long>, Boolean> stored = new HashMap<>();
+        jdbcTemplate.query(SELECT_VOTES_SQL, rs -> {
+            stored.put(List.of(rs.getLong("review_id"), rs.getLong("user_id")), rs.getBoolean("is_like"));
+        }, (Object) reviews.toArray(new Long[0]), (Object) users.toArray(new Long[0]));
+
+        Map<List<Long>, Boolean> current = new LinkedHashMap<>();
+        for (ReviewVote vote : votes) {
+            if (!reviews.contains(vote.getReviewId())) {
+                vote.setStatus(ReviewVote.Status.REVIEW_NOT_FOUND);
+                continue;
+            }
+            if (!users.contains(vote.getUserId())) {
+                vote.setStatus(ReviewVote.Status.USER_NOT_FOUND);
+                continue;
+            }
+            List<Long> key = List.of(vote.getReviewId(), vote.getUserId());
+            Boolean previous = current.containsKey(key) ? current.get(key) : stored.get(key);
+            if (vote.getIsLike().equals(previous)) {
+                vote.setStatus(ReviewVote.Status.UNCHANGED);
+            } else {
+                current.put(key, vote.getIsLike());
+                vote.setStatus(ReviewVote.Status.APPLIED);
+            }
+        }
+
+        List<Object[]> merges = new ArrayList<>();
+        Map<Long, Integer> deltas = new HashMap<>();
+        current.forEach((key, isLike) -> {
+            Boolean previous = stored.get(key);
+            if (isLike.equals(previous)) {
+                return;
+            }
+            merges.add(new Object[]{key.get(0), key.get(1), isLike});
+            deltas.merge(key.get(0), score(isLike) - (previous == null ? 0 : score(previous)), Integer::sum);
+        });
+        for (int from = 0; from < merges.size(); from += voteChunkSize) {
+            jdbcTemplate.batchUpdate(MERGE_LIKE_SQL, merges.subList(from, Math.min(from + voteChunkSize,
+                    merges.size())));
+        }
+        List<Object[]> updates = new ArrayList<>();
+        deltas.forEach((reviewId, delta) -> {
+            if (delta != 0) {
+                updates.add(new Object[]{delta, reviewId});
+            }
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_USEFUL_SQL, updates);
+            List<Review> changed = jdbcTemplate.query(SELECT_REVIEWS_BY_IDS_SQL, reviewMapper,
+                    (Object) deltas.keySet().toArray(new Long[0]));
+            AfterCommit.run(() -> leaderboard.refresh(changed));
+        }
+        return votes;
+    }
+
+    @Override
+    @Transactional
+    public void removeUserLikes(Long userId) {
+        jdbcTemplate.update(SUBTRACT_USER_VOTES_SQL, userId, userId);
+        jdbcTemplate.update(DELETE_USER_LIKES_SQL, userId);
+        AfterCommit.run(leaderboard::clear);
     }
 
     @Override
@@ -113,4 +243,12 @@ public class ReviewDaoImpl implements ReviewDao {
         return Boolean.TRUE.equals(jdbcTemplate.queryForObject(SELECT_LIKE_EXIST_SQL, Boolean.class,
                 isLike, reviewId, userId));
     }
+
+    private static int score(boolean isLike) {
+        return isLike ? 1 : -1;
+    }
+
+    private void refreshLeaderboard(Review review) {
+        AfterCommit.run(() -> leaderboard.refresh(List.of(review)));
+    }
 }
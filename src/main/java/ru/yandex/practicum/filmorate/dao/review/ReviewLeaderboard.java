@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.dao.review;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Review;
+
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Most useful reviews per film, ordered by usefulness descending and then by id. A board holds the exact
+ * top {@code size} reviews of its film, or fewer after reviews have left it, and is loaded with one query
+ * the first time the film is read. Reviews of all films share one more board. Changed reviews are put
+ * into the boards of their film after commit; the least recently read boards are dropped past
+ * {@code max-films}. Callers get copies of the ranked reviews.
+ * <p>
+ * After-commit callbacks of concurrent writes may run in any order, so changed reviews are not put as
+ * the writer saw them. {@link #refresh(Collection)} reads them again under a lock per review, and the
+ * refresh that runs last always puts the latest committed state.
+ */
+@Component
+public class ReviewLeaderboard {
+
+    private static final String SELECT_REVIEWS_SQL = "SELECT id as reviewId, content, is_positive, user_id, " +
+            "film_id, useful FROM review ";
+    private static final String SELECT_FILM_TOP_SQL = SELECT_REVIEWS_SQL +
+            "WHERE film_id = ? ORDER BY useful DESC, id LIMIT ?";
+    private static final String SELECT_TOP_SQL = SELECT_REVIEWS_SQL + "ORDER BY useful DESC, id LIMIT ?";
+    private static final String SELECT_BY_IDS_SQL = SELECT_REVIEWS_SQL + "WHERE id = ANY(?)";
+    private static final int LOCK_STRIPES = 64;
+    private static final long ALL_FILMS = 0L;
+    private static final Comparator<Review> RANK = Comparator.comparing(Review::getUseful, Comparator.reverseOrder())
+            .thenComparing(Review::getReviewId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BeanPropertyRowMapper<Review> reviewMapper = new BeanPropertyRowMapper<>(Review.class);
+    private final int size;
+    private final Cache<Long, Board> boards;
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+
+    @Autowired
+    public ReviewLeaderboard(JdbcTemplate jdbcTemplate, MeterRegistry registry,
+                             @Value("${filmorate.reviews.leaderboard.size:100}") int size,
+                             @Value("${filmorate.reviews.leaderboard.max-films:10000}") long maxFilms) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.size = size;
+        this.boards = Caffeine.newBuilder()
+                .maximumSize(maxFilms)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, boards, "reviewLeaderboard");
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the most useful reviews of the film, or of all films when no film is given.
+     *
+     * @param filmId of the film or null.
+     * @param count  maximum number of reviews to return.
+     * @return {@link List} of reviews or null when {@code count} exceeds the board size.
+     */
+    public List<Review> top(Long filmId, int count) {
+        if (count > size) {
+            return null;
+        }
+        Board board = boards.get(key(filmId), id -> new Board(filmId));
+        return board.top(count);
+    }
+
+    /**
+     * Reads the created or changed reviews and puts them into the boards of their film and of all films.
+     * Reviews that no longer exist are removed, as are reviews moved to another film from the boards of
+     * the film they had.
+     *
+     * @param reviews the reviews as they were before the change, or as created.
+     */
+    public void refresh(Collection<Review> reviews) {
+        if (reviews.isEmpty()) {
+            return;
+        }
+        SortedSet<Integer> stripes = new TreeSet<>();
+        reviews.forEach(review -> stripes.add(stripe(review.getReviewId())));
+        stripes.forEach(stripe -> locks[stripe].lock());
+        try {
+            Map<Long, Review> current = new HashMap<>();
+            jdbcTemplate.query(SELECT_BY_IDS_SQL, reviewMapper, (Object) reviews.stream()
+                    .map(Review::getReviewId).toArray(Long[]::new))
+                    .forEach(review -> current.put(review.getReviewId(), review));
+            for (Review review : reviews) {
+                Review changed = current.get(review.getReviewId());
+                if (changed == null || !changed.getFilmId().equals(review.getFilmId())) {
+                    removeFromBoards(review);
+                }
+                if (changed != null) {
+                    for (Board board : boardsOf(changed.getFilmId())) {
+                        board.put(changed);
+                    }
+                }
+            }
+        } finally {
+            stripes.forEach(stripe -> locks[stripe].unlock());
+        }
+    }
+
+    public void remove(Review review) {
+        Lock lock = locks[stripe(review.getReviewId())];
+        lock.lock();
+        try {
+            removeFromBoards(review);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all boards, e.g. after votes of a removed user have been taken back.
+     */
+    public void clear() {
+        boards.invalidateAll();
+    }
+
+    private void removeFromBoards(Review review) {
+        for (Board board : boardsOf(review.getFilmId())) {
+            board.remove(review.getReviewId());
+        }
+    }
+
+    private static int stripe(long reviewId) {
+        return (int) Math.floorMod(reviewId, (long) LOCK_STRIPES);
+    }
+
+    private List<Board> boardsOf(Long filmId) {
+        List<Board> result = new ArrayList<>(2);
+        Optional.ofNullable(boards.getIfPresent(key(filmId))).ifPresent(result::add);
+        Optional.ofNullable(boards.getIfPresent(ALL_FILMS)).ifPresent(result::add);
+        return result;
+    }
+
+    private static long key(Long filmId) {
+        return filmId == null ? ALL_FILMS : filmId;
+    }
+
+    private static Review copyOf(Review review) {
+        Review copy = new Review();
+        copy.setReviewId(review.getReviewId());
+        copy.setContent(review.getContent());
+        copy.setIsPositive(review.getIsPositive());
+        copy.setUserId(review.getUserId());
+        copy.setFilmId(review.getFilmId());
+        copy.setUseful(review.getUseful());
+        return copy;
+    }
+
+    /**
+     * Top reviews of one film kept in a sorted tree. {@code complete} means the film has no reviews outside
+     * of the board. Changes arriving before the board is loaded are skipped, the load reads them anyway.
+     */
+    private class Board {
+        private final Long filmId;
+        private final TreeSet<Review> ranked = new TreeSet<>(RANK);
+        private final Map<Long, Review> byId = new HashMap<>();
+        private boolean loaded;
+        private boolean complete;
+
+        Board(Long filmId) {
+            this.filmId = filmId;
+        }
+
+        synchronized List<Review> top(int count) {
+            if (!loaded || (!complete && ranked.size() < count)) {
+                load();
+            }
+            List<Review> result = new ArrayList<>(Math.min(count, ranked.size()));
+            for (Review review : ranked) {
+                if (result.size() == count) {
+                    break;
+                }
+                result.add(copyOf(review));
+            }
+            return result;
+        }
+
+        synchronized void put(Review review) {
+            if (!loaded) {
+                return;
+            }
+            remove(review.getReviewId());
+            if (complete || (!ranked.isEmpty() && RANK.compare(review, ranked.last()) < 0)) {
+                ranked.add(review);
+                byId.put(review.getReviewId(), review);
+                if (ranked.size() > size) {
+                    byId.remove(ranked.pollLast().getReviewId());
+                    complete = false;
+                }
+            }
+        }
+
+        synchronized void remove(long reviewId) {
+            Review previous = byId.remove(reviewId);
+            if (previous != null) {
+                ranked.remove(previous);
+            }
+        }
+
+        private void load() {
+            List<Review> reviews = filmId == null
+                    ? jdbcTemplate.query(SELECT_TOP_SQL, reviewMapper, size)
+                    : jdbcTemplate.query(SELECT_FILM_TOP_SQL, reviewMapper, filmId, size);
+            ranked.clear();
+            byId.clear();
+            for (Review review : reviews) {
+                ranked.add(review);
+                byId.put(review.getReviewId(), review);
+            }
+            complete = reviews.size() < size;
+            loaded = true;
+        }
+    }
+}
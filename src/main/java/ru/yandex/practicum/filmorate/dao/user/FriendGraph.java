@@ -0,0 +1,268 @@
+package ru.yandex.practicum.filmorate.dao.user;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.util.SortedLongArrays;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory friendship graph. Friendships are one-way, so every edge is kept twice, as sorted friend
+ * ids per user and as sorted ids of the users who added them per friend.
+ */
+@Component
+public class FriendGraph {
+
+    private static final String SELECT_FRIENDS_SQL = "SELECT user_id, friend_id FROM user_friend";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, long[]> friendsByUser = new HashMap<>();
+    private final Map<Long, long[]> followersByUser = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public FriendGraph(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<Long, Builder> friends = new HashMap<>();
+        Map<Long, Builder> followers = new HashMap<>();
+        jdbcTemplate.query(SELECT_FRIENDS_SQL, rs -> {
+            long userId = rs.getLong("user_id");
+            long friendId = rs.getLong("friend_id");
+            friends.computeIfAbsent(userId, id -> new Builder()).add(friendId);
+            followers.computeIfAbsent(friendId, id -> new Builder()).add(userId);
+        });
+        lock.writeLock().lock();
+        try {
+            friendsByUser.clear();
+            followersByUser.clear();
+            friends.forEach((userId, builder) -> friendsByUser.put(userId, builder.build()));
+            followers.forEach((friendId, builder) -> followersByUser.put(friendId, builder.build()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns sorted ids of the user's friends.
+     */
+    public long[] friends(long userId) {
+        lock.readLock().lock();
+        try {
+            return friendsByUser.getOrDefault(userId, SortedLongArrays.EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns sorted ids of the users who added the user as a friend.
+     */
+    public long[] followers(long userId) {
+        lock.readLock().lock();
+        try {
+            return followersByUser.getOrDefault(userId, SortedLongArrays.EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns sorted ids of the friends both users have, found with a single merge pass.
+     */
+    public long[] commonFriends(long userId, long otherId) {
+        lock.readLock().lock();
+        try {
+            return SortedLongArrays.intersect(friendsByUser.getOrDefault(userId, SortedLongArrays.EMPTY),
+                    friendsByUser.getOrDefault(otherId, SortedLongArrays.EMPTY));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks users two hops away by the number of friends of the user who have them as a friend. The user
+     * and users already added as friends are skipped, ties go to the smaller id.
+     *
+     * @param userId of the user to suggest friends to.
+     * @param limit  maximum number of suggestions.
+     * @return ids of suggested users, most mutual friends first.
+     */
+    public long[] suggest(long userId, int limit) {
+        MutualCounter counter = new MutualCounter();
+        long[] friends;
+        lock.readLock().lock();
+        try {
+            friends = friendsByUser.getOrDefault(userId, SortedLongArrays.EMPTY);
+            for (long friendId : friends) {
+                for (long candidateId : friendsByUser.getOrDefault(friendId, SortedLongArrays.EMPTY)) {
+                    if (candidateId != userId) {
+                        counter.increment(candidateId);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counter.top(limit, friends);
+    }
+
+    public void add(long userId, long friendId) {
+        lock.writeLock().lock();
+        try {
+            friendsByUser.merge(userId, new long[]{friendId}, (set, value) -> SortedLongArrays.insert(set, friendId));
+            followersByUser.merge(friendId, new long[]{userId}, (set, value) -> SortedLongArrays.insert(set, userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long userId, long friendId) {
+        lock.writeLock().lock();
+        try {
+            removeFrom(friendsByUser, userId, friendId);
+            removeFrom(followersByUser, friendId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(long userId) {
+        lock.writeLock().lock();
+        try {
+            for (long friendId : friendsByUser.getOrDefault(userId, SortedLongArrays.EMPTY)) {
+                removeFrom(followersByUser, friendId, userId);
+            }
+            for (long followerId : followersByUser.getOrDefault(userId, SortedLongArrays.EMPTY)) {
+                removeFrom(friendsByUser, followerId, userId);
+            }
+            friendsByUser.remove(userId);
+            followersByUser.remove(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void removeFrom(Map<Long, long[]> sets, long key, long value) {
+        long[] set = sets.get(key);
+        if (set == null) {
+            return;
+        }
+        long[] result = SortedLongArrays.remove(set, value);
+        if (result.length == 0) {
+            sets.remove(key);
+        } else {
+            sets.put(key, result);
+        }
+    }
+
+    /**
+     * Open-addressing map from candidate id to the number of mutual friends, so a neighbourhood of
+     * millions of users is counted without boxing.
+     */
+    private static final class MutualCounter {
+        private static final long FREE = Long.MIN_VALUE;
+        private static final Comparator<long[]> WORST_FIRST = Comparator.<long[]>comparingLong(entry -> entry[0])
+                .thenComparing(Comparator.<long[]>comparingLong(entry -> entry[1]).reversed());
+
+        private long[] keys = newKeys(64);
+        private int[] counts = new int[64];
+        private int size;
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+            return keys;
+        }
+
+        private void increment(long key) {
+            if (size * 2 >= keys.length) {
+                resize();
+            }
+            int slot = slot(keys, key);
+            if (keys[slot] == FREE) {
+                keys[slot] = key;
+                size++;
+            }
+            counts[slot]++;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = newKeys(oldKeys.length * 2);
+            counts = new int[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static int slot(long[] keys, long key) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[slot] != FREE && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Selects the best candidates with a bounded min-heap, so only {@code limit} of them are ever sorted.
+         */
+        private long[] top(int limit, long[] excluded) {
+            if (limit <= 0) {
+                return SortedLongArrays.EMPTY;
+            }
+            PriorityQueue<long[]> heap = new PriorityQueue<>(Math.min(limit, size) + 1, WORST_FIRST);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == FREE || (heap.size() == limit && counts[i] < heap.peek()[0])
+                        || SortedLongArrays.contains(excluded, keys[i])) {
+                    continue;
+                }
+                long[] candidate = {counts[i], keys[i]};
+                if (heap.size() < limit) {
+                    heap.add(candidate);
+                } else if (WORST_FIRST.compare(candidate, heap.peek()) > 0) {
+                    heap.poll();
+                    heap.add(candidate);
+                }
+            }
+            long[] result = new long[heap.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = heap.poll()[1];
+            }
+            return result;
+        }
+    }
+
+    private static final class Builder {
+        private long[] values = new long[4];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private long[] build() {
+            return SortedLongArrays.of(values, size);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.dao.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Caches the best {@code max-limit} friend suggestions per user. The user's own friend changes drop
+ * their entry; changes further away in the graph show up once the entry expires after {@code ttl}.
+ */
+@Component
+public class FriendSuggestions {
+
+    private final FriendGraph friendGraph;
+    private final int maxLimit;
+    private final Cache<Long, long[]> cache;
+
+    @Autowired
+    public FriendSuggestions(FriendGraph friendGraph, MeterRegistry registry,
+                             @Value("${filmorate.friend-suggestions.max-limit:100}") int maxLimit,
+                             @Value("${filmorate.friend-suggestions.max-size:10000}") long maxSize,
+                             @Value("${filmorate.friend-suggestions.ttl:5m}") Duration ttl) {
+        this.friendGraph = friendGraph;
+        this.maxLimit = maxLimit;
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "friendSuggestions");
+    }
+
+    /**
+     * Returns ids of suggested users, most mutual friends first.
+     *
+     * @param userId of the user to suggest friends to.
+     * @param limit  maximum number of suggestions, at most {@code max-limit}.
+     * @return sorted by rank ids of suggested users.
+     */
+    public long[] suggest(long userId, int limit) {
+        if (limit > maxLimit) {
+            throw new IllegalArgumentException(String.format("At most %d suggestions can be requested", maxLimit));
+        }
+        long[] suggestions = cache.get(userId, id -> friendGraph.suggest(id, maxLimit));
+        return suggestions.length <= limit ? suggestions : Arrays.copyOf(suggestions, limit);
+    }
+
+    public void invalidate(long userId) {
+        cache.invalidate(userId);
+    }
+}
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.dao.user;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +23,14 @@ public interface UserDao {
      */
     Optional<User> findById(Long id);
 
+    /**
+     * Returns users by the given ids in the same order. Missing ids are skipped.
+     *
+     * @param ids of the users to be returned.
+     * @return {@link List} of found users or empty {@link List}.
+     */
+    List<User> findAllByIds(Collection<Long> ids);
+
     /**
      * Sets the next available ID and saves the {@link User} in storage.
      *
@@ -76,4 +85,22 @@ public interface UserDao {
      * @return {@link List} of {@link User} or empty list.
      */
     List<User> getFriends(Long id);
+
+    /**
+     * Returns friends both users have, ordered by id.
+     *
+     * @param id      of the first user.
+     * @param otherId of the second user.
+     * @return {@link List} of {@link User} or empty list.
+     */
+    List<User> getCommonFriends(Long id, Long otherId);
+
+    /**
+     * Returns users the user has not added as friends yet, ranked by the number of mutual friends.
+     *
+     * @param id    of the user.
+     * @param limit maximum number of users to return.
+     * @return {@link List} of {@link User} or empty list.
+     */
+    List<User> getFriendSuggestions(Long id, int limit);
 }
@@ -9,7 +9,10 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.dao.event.FeedTimelines;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.AfterCommit;
+import ru.yandex.practicum.filmorate.util.IdPresence;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
@@ -19,8 +22,10 @@ import java.util.*;
 @Repository
 public class UserDaoImpl implements UserDao {
     private static final String IS_EXIST_SQL = "SELECT EXISTS(SELECT * FROM app_user WHERE id = ?)";
+    private static final String SELECT_IDS_SQL = "SELECT id FROM app_user";
     private static final String SELECT_ALL_SQL = "SELECT * FROM app_user";
     private static final String SELECT_USER_SQL = "SELECT * FROM app_user WHERE id = ?";
+    private static final String SELECT_USERS_BY_IDS_SQL = "SELECT * FROM app_user WHERE id = ANY(?)";
     private static final String INSERT_USER_SQL = "INSERT INTO app_user(email, login, name, birthday)" +
             "VALUES (?, ?, ?, ?)";
     private static final String UPDATE_USER_SQL = "UPDATE app_user SET email = ?, login = ?, name = ?, birthday = ? " +
@@ -33,11 +38,20 @@ public class UserDaoImpl implements UserDao {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final JdbcTemplate jdbcTemplate;
+    private final IdPresence idPresence;
+    private final FeedTimelines timelines;
+    private final FriendGraph friendGraph;
+    private final FriendSuggestions suggestions;
     private final BeanPropertyRowMapper<User> userMapper = new BeanPropertyRowMapper<>(User.class);
 
     @Autowired
-    public UserDaoImpl(JdbcTemplate jdbcTemplate) {
+    public UserDaoImpl(JdbcTemplate jdbcTemplate, FeedTimelines timelines, FriendGraph friendGraph,
+                       FriendSuggestions suggestions) {
         this.jdbcTemplate = jdbcTemplate;
+        this.timelines = timelines;
+        this.friendGraph = friendGraph;
+        this.suggestions = suggestions;
+        this.idPresence = new IdPresence(jdbcTemplate, SELECT_IDS_SQL, IS_EXIST_SQL);
     }
 
     @Override
@@ -56,6 +70,24 @@ public class UserDaoImpl implements UserDao {
         return Optional.ofNullable(user);
     }
 
+    @Override
+    public List<User> findAllByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, User> users = new HashMap<>();
+        jdbcTemplate.query(SELECT_USERS_BY_IDS_SQL, userMapper, (Object) ids.toArray(new Long[0]))
+                .forEach(user -> users.put(user.getId(), user));
+        List<User> result = new ArrayList<>(users.size());
+        for (Long id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
     @Override
     public User createUser(User user) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
@@ -69,6 +101,7 @@ public class UserDaoImpl implements UserDao {
                     return ps;
                 }, keyHolder);
         user.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        AfterCommit.run(() -> idPresence.add(user.getId()));
         return user;
     }
 
@@ -79,26 +112,63 @@ public class UserDaoImpl implements UserDao {
 
     @Override
     public boolean existsById(Long id) {
-        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_EXIST_SQL, Boolean.class, id));
+        return idPresence.contains(id);
     }
 
     @Override
     public void deleteById(Long id) {
         jdbcTemplate.update(DELETE_USER_SQL, id);
+        AfterCommit.run(() -> {
+            idPresence.remove(id);
+            timelines.removeUser(id);
+            friendGraph.removeUser(id);
+            suggestions.invalidate(id);
+        });
     }
 
     @Override
     public void addFriend(Long userId, Long friendId) {
         jdbcTemplate.update(INSERT_FRIEND_SQL, userId, friendId);
+        AfterCommit.run(() -> {
+            friendGraph.add(userId, friendId);
+            suggestions.invalidate(userId);
+            timelines.addFriend(userId, friendId);
+        });
     }
 
     @Override
     public void removeFriend(Long userId, Long friendId) {
-        jdbcTemplate.update(DELETE_FRIEND_SQL, userId, friendId);
+        if (jdbcTemplate.update(DELETE_FRIEND_SQL, userId, friendId) > 0) {
+            AfterCommit.run(() -> {
+                friendGraph.remove(userId, friendId);
+                suggestions.invalidate(userId);
+                timelines.removeFriend(userId, friendId);
+            });
+        }
     }
 
     @Override
     public List<User> getFriends(Long id) {
         return jdbcTemplate.query(SELECT_FRIENDS_SQL, userMapper, id);
     }
+
+    @Override
+    public List<User> getCommonFriends(Long id, Long otherId) {
+        long[] commonIds = friendGraph.commonFriends(id, otherId);
+        List<Long> ids = new ArrayList<>(commonIds.length);
+        for (long commonId : commonIds) {
+            ids.add(commonId);
+        }
+        return findAllByIds(ids);
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(Long id, int limit) {
+        long[] suggestedIds = suggestions.suggest(id, limit);
+        List<Long> ids = new ArrayList<>(suggestedIds.length);
+        for (long suggestedId : suggestedIds) {
+            ids.add(suggestedId);
+        }
+        return findAllByIds(ids);
+    }
 }
@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Bulk-loads a reproducible synthetic dataset through JDBC batches. Generated ids continue after the
+ * current maximum of each table, so the generator can run on top of an existing database; the
+ * reference tables ({@code genre}, {@code mpa}) must already be filled by {@code data.sql}.
+ */
+@Component
+public class DatasetGenerator {
+    private static final int BATCH_SIZE = 10_000;
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO app_user(id, name, email, login, birthday) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_DIRECTOR_SQL = "INSERT INTO director(id, name) VALUES (?, ?)";
+    private static final String INSERT_FILM_SQL = "INSERT INTO film(id, name, description, release_date, " +
+            "duration, mpa_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_FILM_GENRE_SQL = "INSERT INTO film_genre(film_id, genre_id) VALUES (?, ?)";
+    private static final String INSERT_FILM_DIRECTOR_SQL =
+            "INSERT INTO film_director(film_id, director_id) VALUES (?, ?)";
+    private static final String INSERT_LIKE_SQL = "INSERT INTO film_likes(user_id, film_id) VALUES (?, ?)";
+    private static final String INSERT_FRIEND_SQL = "INSERT INTO user_friend(user_id, friend_id) VALUES (?, ?)";
+    private static final String INSERT_REVIEW_SQL =
+            "INSERT INTO review(id, content, is_positive, user_id, film_id, useful) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_REVIEW_LIKE_SQL =
+            "INSERT INTO review_likes(review_id, user_id, is_like) VALUES (?, ?, ?)";
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO event(user_id, event_type, operation, entity_id) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_LIKES_COUNT_SQL = "UPDATE film f SET likes_count = " +
+            "(SELECT COUNT(*) FROM film_likes l WHERE l.film_id = f.id) WHERE f.id > ?";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void generate(DatasetSpec spec) {
+        if (spec.getUsers() <= 0 || spec.getFilms() <= 0) {
+            throw new IllegalArgumentException("Dataset needs at least one user and one film");
+        }
+        log.info("Generating dataset {}", spec);
+        Random random = new Random(spec.getSeed());
+        long userBase = maxId("app_user");
+        long filmBase = maxId("film");
+        long directorBase = maxId("director");
+        long reviewBase = maxId("review");
+        List<Long> genreIds = jdbcTemplate.queryForList("SELECT id FROM genre ORDER BY id", Long.class);
+        List<Long> mpaIds = jdbcTemplate.queryForList("SELECT id FROM mpa ORDER BY id", Long.class);
+
+        Batch events = new Batch(INSERT_EVENT_SQL);
+
+        Batch users = new Batch(INSERT_USER_SQL);
+        for (long id = userBase + 1; id <= userBase + spec.getUsers(); id++) {
+            users.add(id, "user" + id, "user" + id + "@filmorate.test", "user" + id,
+                    Date.valueOf(LocalDate.of(1950 + random.nextInt(55), 1 + random.nextInt(12), 1)));
+        }
+        users.flush();
+
+        Batch directors = new Batch(INSERT_DIRECTOR_SQL);
+        for (long id = directorBase + 1; id <= directorBase + spec.getDirectors(); id++) {
+            directors.add(id, capitalize(word(random)) + " " + capitalize(word(random)) + " " + id);
+        }
+        directors.flush();
+
+        Batch films = new Batch(INSERT_FILM_SQL);
+        Batch filmGenres = new Batch(INSERT_FILM_GENRE_SQL, films);
+        Batch filmDirectors = new Batch(INSERT_FILM_DIRECTOR_SQL, films);
+        ZipfSampler directorSampler = spec.getDirectors() > 0
+                ? new ZipfSampler(spec.getDirectors(), spec.getSkew(), random) : null;
+        for (long id = filmBase + 1; id <= filmBase + spec.getFilms(); id++) {
+            films.add(id, title(random), "Synthetic film " + id,
+                    Date.valueOf(LocalDate.of(1900 + random.nextInt(123), 1 + random.nextInt(12), 1)),
+                    60 + random.nextInt(140), mpaIds.get(random.nextInt(mpaIds.size())));
+            Set<Long> filmGenreIds = new HashSet<>();
+            for (int i = random.nextInt(3); i >= 0; i--) {
+                filmGenreIds.add(genreIds.get(random.nextInt(genreIds.size())));
+            }
+            for (Long genreId : filmGenreIds) {
+                filmGenres.add(id, genreId);
+            }
+            if (directorSampler != null) {
+                filmDirectors.add(id, directorBase + directorSampler.next());
+            }
+        }
+        films.flush();
+        filmGenres.flush();
+        filmDirectors.flush();
+
+        Batch likes = new Batch(INSERT_LIKE_SQL);
+        ZipfSampler filmSampler = new ZipfSampler(spec.getFilms(), spec.getSkew(), random);
+        for (long userId = userBase + 1; userId <= userBase + spec.getUsers(); userId++) {
+            for (int filmIndex : distinct(filmSampler, activity(spec.getLikesPerUser(), spec.getFilms(), random), 0)) {
+                likes.add(userId, filmBase + filmIndex);
+                events.add(userId, Event.EventType.LIKE.name(), Event.Operation.ADD.name(), filmBase + filmIndex);
+            }
+        }
+        likes.flush();
+        jdbcTemplate.update(UPDATE_LIKES_COUNT_SQL, filmBase);
+
+        Batch friends = new Batch(INSERT_FRIEND_SQL);
+        ZipfSampler userSampler = new ZipfSampler(spec.getUsers(), spec.getSkew(), random);
+        for (long userId = userBase + 1; userId <= userBase + spec.getUsers(); userId++) {
+            int count = activity(spec.getFriendsPerUser(), spec.getUsers() - 1, random);
+            for (int friendIndex : distinct(userSampler, count, (int) (userId - userBase))) {
+                friends.add(userId, userBase + friendIndex);
+                events.add(userId, Event.EventType.FRIEND.name(), Event.Operation.ADD.name(), userBase + friendIndex);
+            }
+        }
+        friends.flush();
+
+        Batch reviews = new Batch(INSERT_REVIEW_SQL);
+        Batch reviewLikes = new Batch(INSERT_REVIEW_LIKE_SQL, reviews);
+        long reviewId = reviewBase;
+        for (long userId = userBase + 1; userId <= userBase + spec.getUsers(); userId++) {
+            for (int filmIndex : distinct(filmSampler, activity(spec.getReviewsPerUser(), spec.getFilms(), random), 0)) {
+                reviewId++;
+                boolean positive = random.nextBoolean();
+                int voteCount = activity(spec.getVotesPerReview(), spec.getUsers() - 1, random);
+                List<Object[]> votes = new ArrayList<>(voteCount);
+                long useful = 0;
+                for (int voterIndex : distinct(userSampler, voteCount, (int) (userId - userBase))) {
+                    boolean isLike = random.nextInt(4) > 0;
+                    votes.add(new Object[]{reviewId, userBase + voterIndex, isLike});
+                    useful += isLike ? 1 : -1;
+                }
+                reviews.add(reviewId, "Synthetic review " + reviewId, positive, userId, filmBase + filmIndex, useful);
+                for (Object[] vote : votes) {
+                    reviewLikes.add(vote);
+                }
+                events.add(userId, Event.EventType.REVIEW.name(), Event.Operation.ADD.name(), reviewId);
+            }
+        }
+        reviews.flush();
+        reviewLikes.flush();
+        events.flush();
+
+        restartIdentity("app_user", userBase + spec.getUsers());
+        restartIdentity("film", filmBase + spec.getFilms());
+        restartIdentity("director", directorBase + spec.getDirectors());
+        restartIdentity("review", reviewId);
+        log.info("Dataset generated: {} users, {} films, {} likes, {} friendships, {} reviews, {} review votes, " +
+                        "{} events", users.count, films.count, likes.count, friends.count, reviews.count,
+                reviewLikes.count, events.count);
+    }
+
+    private long maxId(String table) {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        return max == null ? 0 : max;
+    }
+
+    private void restartIdentity(String table, long maxId) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + (maxId + 1));
+    }
+
+    /**
+     * Draws a Pareto-distributed count (shape 2) with the given mean, capped at {@code max}.
+     */
+    private static int activity(double mean, int max, Random random) {
+        double u = 1 - random.nextDouble();
+        return (int) Math.min(max, Math.max(0, Math.floor(mean / 2 / Math.sqrt(u) + random.nextDouble())));
+    }
+
+    private static Set<Integer> distinct(ZipfSampler sampler, int count, int excluded) {
+        Set<Integer> values = new HashSet<>();
+        int attempts = count * 4;
+        while (values.size() < count && attempts-- > 0) {
+            int value = sampler.next();
+            if (value != excluded) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    private static String title(Random random) {
+        int words = 1 + random.nextInt(3);
+        StringBuilder title = new StringBuilder(capitalize(word(random)));
+        for (int i = 1; i < words; i++) {
+            title.append(' ').append(word(random));
+        }
+        return title.toString();
+    }
+
+    private static String word(Random random) {
+        int length = 3 + random.nextInt(7);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return word.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    /**
+     * Buffers rows of one insert statement. A batch referencing another table flushes that table's
+     * batch first, so foreign keys always point at rows that are already written.
+     */
+    private class Batch {
+        private final String sql;
+        private final Batch parent;
+        private final List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        private long count;
+
+        Batch(String sql) {
+            this(sql, null);
+        }
+
+        Batch(String sql, Batch parent) {
+            this.sql = sql;
+            this.parent = parent;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+            count++;
+            if (rows.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (parent != null) {
+                parent.flush();
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+    }
+}
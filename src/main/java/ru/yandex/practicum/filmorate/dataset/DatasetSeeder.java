@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.event.FeedTimelines;
+import ru.yandex.practicum.filmorate.dao.likes.LikeMatrix;
+import ru.yandex.practicum.filmorate.dao.likes.PopularFilmsRanking;
+import ru.yandex.practicum.filmorate.dao.user.FriendGraph;
+
+/**
+ * Fills the database with a synthetic dataset on startup when the {@code seed} profile is active,
+ * e.g. {@code --spring.profiles.active=seed --filmorate.dataset.users=1000000}.
+ */
+@Component
+@Profile("seed")
+public class DatasetSeeder implements CommandLineRunner {
+    private final DatasetGenerator generator;
+    private final LikeMatrix likeMatrix;
+    private final PopularFilmsRanking ranking;
+    private final FriendGraph friendGraph;
+    private final FeedTimelines timelines;
+    private final DatasetSpec spec = new DatasetSpec();
+
+    public DatasetSeeder(DatasetGenerator generator, LikeMatrix likeMatrix, PopularFilmsRanking ranking,
+                         FriendGraph friendGraph, FeedTimelines timelines,
+                         @Value("${filmorate.dataset.users:10000}") int users,
+                         @Value("${filmorate.dataset.films:10000}") int films,
+                         @Value("${filmorate.dataset.directors:1000}") int directors,
+                         @Value("${filmorate.dataset.likes-per-user:20}") double likesPerUser,
+                         @Value("${filmorate.dataset.friends-per-user:10}") double friendsPerUser,
+                         @Value("${filmorate.dataset.reviews-per-user:1}") double reviewsPerUser,
+                         @Value("${filmorate.dataset.votes-per-review:3}") double votesPerReview,
+                         @Value("${filmorate.dataset.skew:1.0}") double skew,
+                         @Value("${filmorate.dataset.seed:42}") long seed) {
+        this.generator = generator;
+        this.likeMatrix = likeMatrix;
+        this.ranking = ranking;
+        this.friendGraph = friendGraph;
+        this.timelines = timelines;
+        spec.setUsers(users);
+        spec.setFilms(films);
+        spec.setDirectors(directors);
+        spec.setLikesPerUser(likesPerUser);
+        spec.setFriendsPerUser(friendsPerUser);
+        spec.setReviewsPerUser(reviewsPerUser);
+        spec.setVotesPerReview(votesPerReview);
+        spec.setSkew(skew);
+        spec.setSeed(seed);
+    }
+
+    @Override
+    public void run(String... args) {
+        generator.generate(spec);
+        likeMatrix.load();
+        ranking.load();
+        friendGraph.load();
+        timelines.clear();
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+/**
+ * Sizes of a synthetic dataset. Per-user and per-review values are averages: actual counts follow
+ * a power law, so most users are nearly idle and a few are very active.
+ */
+public class DatasetSpec {
+    private int users = 10_000;
+    private int films = 10_000;
+    private int directors = 1_000;
+    private double likesPerUser = 20;
+    private double friendsPerUser = 10;
+    private double reviewsPerUser = 1;
+    private double votesPerReview = 3;
+    private double skew = 1.0;
+    private long seed = 42;
+
+    public int getUsers() {
+        return users;
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public int getFilms() {
+        return films;
+    }
+
+    public void setFilms(int films) {
+        this.films = films;
+    }
+
+    public int getDirectors() {
+        return directors;
+    }
+
+    public void setDirectors(int directors) {
+        this.directors = directors;
+    }
+
+    public double getLikesPerUser() {
+        return likesPerUser;
+    }
+
+    public void setLikesPerUser(double likesPerUser) {
+        this.likesPerUser = likesPerUser;
+    }
+
+    public double getFriendsPerUser() {
+        return friendsPerUser;
+    }
+
+    public void setFriendsPerUser(double friendsPerUser) {
+        this.friendsPerUser = friendsPerUser;
+    }
+
+    public double getReviewsPerUser() {
+        return reviewsPerUser;
+    }
+
+    public void setReviewsPerUser(double reviewsPerUser) {
+        this.reviewsPerUser = reviewsPerUser;
+    }
+
+    public double getVotesPerReview() {
+        return votesPerReview;
+    }
+
+    public void setVotesPerReview(double votesPerReview) {
+        this.votesPerReview = votesPerReview;
+    }
+
+    /**
+     * Zipf exponent used to pick liked films, befriended users and reviewed films.
+     */
+    public double getSkew() {
+        return skew;
+    }
+
+    public void setSkew(double skew) {
+        this.skew = skew;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public String toString() {
+        return "DatasetSpec{" +
+                "users=" + users +
+                ", films=" + films +
+                ", directors=" + directors +
+                ", likesPerUser=" + likesPerUser +
+                ", friendsPerUser=" + friendsPerUser +
+                ", reviewsPerUser=" + reviewsPerUser +
+                ", votesPerReview=" + votesPerReview +
+                ", skew=" + skew +
+                ", seed=" + seed +
+                '}';
+    }
+}
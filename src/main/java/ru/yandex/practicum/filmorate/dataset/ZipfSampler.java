@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.dataset;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws values from {@code 1..n} with probability proportional to {@code 1 / rank^skew}.
+ * Ranks are mapped to values through a seeded shuffle, so the most popular values are spread
+ * over the whole id range instead of being the lowest ids.
+ */
+class ZipfSampler {
+    private final double[] cumulative;
+    private final int[] valueByRank;
+    private final Random random;
+
+    ZipfSampler(int n, double skew, Random random) {
+        this.random = random;
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1 / Math.pow(rank, skew);
+            cumulative[rank - 1] = sum;
+        }
+        valueByRank = new int[n];
+        for (int i = 0; i < n; i++) {
+            valueByRank[i] = i + 1;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = valueByRank[i];
+            valueByRank[i] = valueByRank[j];
+            valueByRank[j] = value;
+        }
+    }
+
+    int next() {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int index = Arrays.binarySearch(cumulative, target);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return valueByRank[Math.min(index, valueByRank.length - 1)];
+    }
+}
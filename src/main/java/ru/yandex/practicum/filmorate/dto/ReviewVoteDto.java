@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import ru.yandex.practicum.filmorate.model.ReviewVote;
+
+import javax.validation.constraints.NotNull;
+
+public class ReviewVoteDto {
+
+    @NotNull
+    private Long reviewId;
+
+    @NotNull
+    private Long userId;
+
+    @NotNull
+    private Boolean isLike;
+
+    private ReviewVote.Status status;
+
+    public Long getReviewId() {
+        return reviewId;
+    }
+
+    public void setReviewId(Long reviewId) {
+        this.reviewId = reviewId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Boolean getIsLike() {
+        return isLike;
+    }
+
+    public void setIsLike(Boolean isLike) {
+        this.isLike = isLike;
+    }
+
+    public ReviewVote.Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(ReviewVote.Status status) {
+        this.status = status;
+    }
+}
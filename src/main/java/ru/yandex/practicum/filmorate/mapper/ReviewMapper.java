@@ -2,11 +2,15 @@ package ru.yandex.practicum.filmorate.mapper;
 
 import org.mapstruct.Mapper;
 import ru.yandex.practicum.filmorate.dto.ReviewDto;
+import ru.yandex.practicum.filmorate.dto.ReviewVoteDto;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewVote;
 
 @Mapper
 public interface ReviewMapper {
 
     Review mapToReview(ReviewDto dto);
 
+    ReviewVote mapToReviewVote(ReviewVoteDto dto);
+
 }
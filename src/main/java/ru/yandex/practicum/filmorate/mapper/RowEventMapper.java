@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.mapper;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@Component
+public class RowEventMapper implements RowMapper<Event> {
+
+    @Override
+    public Event mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Event event = new Event(rs.getLong("user_id"),
+                Event.EventType.valueOf(rs.getString("event_type")),
+                Event.Operation.valueOf(rs.getString("operation")),
+                rs.getLong("entity_id"));
+        event.setId(rs.getLong("id"));
+        event.setCreated(rs.getTimestamp("created"));
+        return event;
+    }
+}
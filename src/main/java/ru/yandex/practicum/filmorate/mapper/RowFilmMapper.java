@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.mapper;
 
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.mpa.MpaDao;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
@@ -10,6 +11,12 @@ import java.sql.SQLException;
 
 @Component
 public class RowFilmMapper implements RowMapper<Film> {
+    private final MpaDao mpaDao;
+
+    public RowFilmMapper(MpaDao mpaDao) {
+        this.mpaDao = mpaDao;
+    }
+
     @Override
     public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
         Film film = new Film();
@@ -18,10 +25,12 @@ public class RowFilmMapper implements RowMapper<Film> {
         film.setDescription(rs.getString("description"));
         film.setReleaseDate(rs.getDate("release_date").toLocalDate());
         film.setDuration(rs.getInt("duration"));
-        Mpa mpa = new Mpa();
-        mpa.setId(rs.getLong("mpa_id"));
-        mpa.setName(rs.getString("mpa_name"));
-        film.setMpa(mpa);
+        long mpaId = rs.getLong("mpa_id");
+        film.setMpa(mpaDao.findById(mpaId).orElseGet(() -> {
+            Mpa mpa = new Mpa();
+            mpa.setId(mpaId);
+            return mpa;
+        }));
         return film;
     }
 }
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public DaoMetricsAspect daoMetricsAspect(MeterRegistry registry) {
+        return new DaoMetricsAspect(registry);
+    }
+
+    /**
+     * Counts JDBC statements per request. Every connection is wrapped in a reflection proxy, so this is
+     * off unless {@code filmorate.metrics.statements.enabled} is set, as the tests do.
+     */
+    @Configuration
+    @ConditionalOnProperty(name = "filmorate.metrics.statements.enabled", havingValue = "true")
+    public static class StatementMetricsConfig {
+
+        @Bean
+        public static StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+
+        @Bean
+        public static BeanPostProcessor statementCountingDataSource(StatementCounter statementCounter) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource)) {
+                        return bean;
+                    }
+                    return new DelegatingDataSource((DataSource) bean) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            return statementCounter.wrap(super.getConnection());
+                        }
+                    };
+                }
+            };
+        }
+
+        @Bean
+        public StatementMetricsFilter statementMetricsFilter(StatementCounter statementCounter,
+                                                             MeterRegistry registry) {
+            return new StatementMetricsFilter(statementCounter, registry);
+        }
+    }
+}
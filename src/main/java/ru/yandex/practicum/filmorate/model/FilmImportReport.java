@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FilmImportReport {
+    private static final int MAX_REPORTED_FAILURES = 1000;
+
+    private long imported;
+    private long failed;
+    private final List<Failure> failures = new ArrayList<>();
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Returns the first failed lines; {@link #getFailed()} counts all of them.
+     */
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    public void addFailure(long line, String message) {
+        failed++;
+        if (failures.size() < MAX_REPORTED_FAILURES) {
+            failures.add(new Failure(line, message));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FilmImportReport{" +
+                "imported=" + imported +
+                ", failed=" + failed +
+                '}';
+    }
+
+    public static class Failure {
+        private final long line;
+        private final String message;
+
+        public Failure(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.model;
+
+public class ReviewVote {
+    private Long reviewId;
+    private Long userId;
+    private Boolean isLike;
+    private Status status;
+
+    public ReviewVote() {}
+
+    public ReviewVote(Long reviewId, Long userId, Boolean isLike) {
+        this.reviewId = reviewId;
+        this.userId = userId;
+        this.isLike = isLike;
+    }
+
+    public Long getReviewId() {
+        return reviewId;
+    }
+
+    public void setReviewId(Long reviewId) {
+        this.reviewId = reviewId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Boolean getIsLike() {
+        return isLike;
+    }
+
+    public void setIsLike(Boolean isLike) {
+        this.isLike = isLike;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    @Override
+    public String toString() {
+        return "ReviewVote{" +
+                "reviewId=" + reviewId +
+                ", userId=" + userId +
+                ", isLike=" + isLike +
+                ", status=" + status +
+                '}';
+    }
+
+    public enum Status {
+        APPLIED,
+        UNCHANGED,
+        REVIEW_NOT_FOUND,
+        USER_NOT_FOUND
+    }
+}
@@ -0,0 +1,258 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.director.DirectorDao;
+import ru.yandex.practicum.filmorate.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.dao.genre.GenreDao;
+import ru.yandex.practicum.filmorate.dao.mpa.MpaDao;
+import ru.yandex.practicum.filmorate.dto.DirectorDto;
+import ru.yandex.practicum.filmorate.dto.FilmDto;
+import ru.yandex.practicum.filmorate.dto.GenreDto;
+import ru.yandex.practicum.filmorate.mapper.FilmMapper;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportReport;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk film import from newline delimited JSON, one {@link FilmDto} per line. Genres and directors may be
+ * given by name instead of id. Films are collected into chunks of {@code chunk-size} and every chunk is written in its
+ * own transaction: genres and directors referenced by name are looked up or created, then the films are
+ * inserted with batched statements. A line with unknown references fails on its own; a chunk failing in
+ * the database fails all of its lines and the import goes on with the next chunk.
+ */
+@Service
+public class FilmImportService {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private final FilmDao filmDao;
+    private final GenreDao genreDao;
+    private final DirectorDao directorDao;
+    private final MpaDao mpaDao;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final FilmMapper filmMapper;
+    private final int chunkSize;
+
+    public FilmImportService(FilmDao filmDao, GenreDao genreDao, DirectorDao directorDao, MpaDao mpaDao,
+                             PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                             Validator validator, FilmMapper filmMapper,
+                             @Value("${filmorate.films.import.chunk-size:500}") int chunkSize) {
+        this.filmDao = filmDao;
+        this.genreDao = genreDao;
+        this.directorDao = directorDao;
+        this.mpaDao = mpaDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.filmMapper = filmMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports all films read from the reader. Lines that can't be read or imported are listed in the report
+     * by number, the rest of the input is imported anyway.
+     *
+     * @param input newline delimited JSON films; blank lines are skipped.
+     * @return {@link FilmImportReport} of the import.
+     */
+    public FilmImportReport importFilms(Reader input) throws IOException {
+        FilmImport filmImport = new FilmImport();
+        BufferedReader reader = new BufferedReader(input);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (!line.isBlank()) {
+                importLine(filmImport, lineNumber, line);
+            }
+        }
+        return filmImport.finish();
+    }
+
+    private void importLine(FilmImport filmImport, long lineNumber, String line) {
+        FilmDto filmDto;
+        try {
+            filmDto = objectMapper.readValue(line, FilmDto.class);
+        } catch (JsonProcessingException e) {
+            filmImport.fail(lineNumber, e.getOriginalMessage());
+            return;
+        }
+        Set<ConstraintViolation<FilmDto>> violations = validator.validate(filmDto);
+        if (!violations.isEmpty()) {
+            filmImport.fail(lineNumber, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+            return;
+        }
+        // references given by name only are resolved per chunk, the mapper gets the ones with ids
+        List<String> genreNames = new ArrayList<>();
+        List<String> directorNames = new ArrayList<>();
+        if (filmDto.getGenres() != null) {
+            List<GenreDto> genres = new ArrayList<>();
+            for (GenreDto genre : filmDto.getGenres()) {
+                if (genre.getId() != null) {
+                    genres.add(genre);
+                } else if (genre.getName() != null && !genre.getName().isBlank()) {
+                    genreNames.add(genre.getName());
+                } else {
+                    filmImport.fail(lineNumber, "genres: id or name is required");
+                    return;
+                }
+            }
+            filmDto.setGenres(genres);
+        }
+        if (filmDto.getDirectors() != null) {
+            List<DirectorDto> directors = new ArrayList<>();
+            for (DirectorDto director : filmDto.getDirectors()) {
+                if (director.getId() != null) {
+                    directors.add(director);
+                } else if (director.getName() != null && !director.getName().isBlank()) {
+                    directorNames.add(director.getName());
+                } else {
+                    filmImport.fail(lineNumber, "directors: id or name is required");
+                    return;
+                }
+            }
+            filmDto.setDirectors(directors);
+        }
+        filmImport.add(lineNumber, filmMapper.mapToFilm(filmDto), genreNames, directorNames);
+    }
+
+    /**
+     * One running import. Holds at most one chunk of films in memory.
+     */
+    private class FilmImport {
+        private final List<Entry> chunk = new ArrayList<>(chunkSize);
+        private final FilmImportReport report = new FilmImportReport();
+
+        /**
+         * Queues a film for import.
+         *
+         * @param line           number of the input line, used in the report.
+         * @param film           the film; its genres and directors must have ids.
+         * @param genreNames     names of further genres of the film, created if missing.
+         * @param directorNames  names of further directors of the film, created if missing.
+         */
+        void add(long line, Film film, Collection<String> genreNames, Collection<String> directorNames) {
+            String error = validateReferences(film);
+            if (error != null) {
+                report.addFailure(line, error);
+                return;
+            }
+            chunk.add(new Entry(line, film, genreNames, directorNames));
+            if (chunk.size() == chunkSize) {
+                flush();
+            }
+        }
+
+        void fail(long line, String message) {
+            report.addFailure(line, message);
+        }
+
+        FilmImportReport finish() {
+            flush();
+            log.info("Film import finished: {}", report);
+            return report;
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(chunk));
+                report.addImported(chunk.size());
+            } catch (DataAccessException e) {
+                failChunk(e.getMostSpecificCause().getMessage());
+            } catch (IllegalStateException e) {
+                // BatchInsert got a different number of generated keys than rows; the chunk is rolled back
+                failChunk(e.getMessage());
+            }
+            chunk.clear();
+        }
+
+        private void failChunk(String message) {
+            log.warn("Failed to import chunk of {} films starting at line {}: {}", chunk.size(),
+                    chunk.get(0).line, message);
+            chunk.forEach(entry -> report.addFailure(entry.line, message));
+        }
+    }
+
+    private String validateReferences(Film film) {
+        if (mpaDao.findById(film.getMpa().getId()).isEmpty()) {
+            return String.format("Mpa %s doesn't exist", film.getMpa().getId());
+        }
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                if (genreDao.findById(genre.getId()).isEmpty()) {
+                    return String.format("Genre %s doesn't exist", genre.getId());
+                }
+            }
+        }
+        if (film.getDirectors() != null) {
+            for (Director director : film.getDirectors()) {
+                if (!directorDao.existsById(director.getId())) {
+                    return String.format("Director %s doesn't exist", director.getId());
+                }
+            }
+        }
+        return null;
+    }
+
+    private void write(List<Entry> entries) {
+        Set<String> genreNames = new HashSet<>();
+        Set<String> directorNames = new HashSet<>();
+        for (Entry entry : entries) {
+            genreNames.addAll(entry.genreNames);
+            directorNames.addAll(entry.directorNames);
+        }
+        Map<String, Genre> genres = genreDao.findOrCreateByNames(genreNames);
+        Map<String, Director> directors = directorDao.findOrCreateByNames(directorNames);
+        List<Film> films = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            Film film = entry.film;
+            Set<Genre> filmGenres = film.getGenres() == null ? new HashSet<>() : new HashSet<>(film.getGenres());
+            entry.genreNames.forEach(name -> filmGenres.add(genres.get(name)));
+            film.setGenres(filmGenres);
+            Set<Director> filmDirectors = film.getDirectors() == null
+                    ? new HashSet<>() : new HashSet<>(film.getDirectors());
+            entry.directorNames.forEach(name -> filmDirectors.add(directors.get(name)));
+            film.setDirectors(filmDirectors);
+            films.add(film);
+        }
+        filmDao.createFilms(films);
+    }
+
+    private static class Entry {
+        private final long line;
+        private final Film film;
+        private final Collection<String> genreNames;
+        private final Collection<String> directorNames;
+
+        Entry(long line, Film film, Collection<String> genreNames, Collection<String> directorNames) {
+            this.line = line;
+            this.film = film;
+            this.genreNames = genreNames;
+            this.directorNames = directorNames;
+        }
+    }
+}
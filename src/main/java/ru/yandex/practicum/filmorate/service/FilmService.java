@@ -4,18 +4,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dao.director.DirectorDao;
-import ru.yandex.practicum.filmorate.dao.event.EventDao;
 import ru.yandex.practicum.filmorate.dao.film.FilmDao;
 import ru.yandex.practicum.filmorate.dao.likes.LikesDao;
 import ru.yandex.practicum.filmorate.exceptions.LikeDoesntExistException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
-import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
 
-import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 public class FilmService {
@@ -27,21 +23,27 @@ public class FilmService {
     private final FilmDao filmDao;
     private final LikesDao likesDao;
     private final DirectorDao directorDao;
-    private final EventDao eventDao;
     private final UserService userService;
 
-    public FilmService(FilmDao filmDao, LikesDao likesDao, DirectorDao directorDao, UserService userService, EventDao eventDao) {
+    public FilmService(FilmDao filmDao, LikesDao likesDao, DirectorDao directorDao, UserService userService) {
         this.filmDao = filmDao;
         this.likesDao = likesDao;
         this.directorDao = directorDao;
         this.userService = userService;
-        this.eventDao = eventDao;
     }
 
     public List<Film> findAll() {
         return filmDao.findAll();
     }
 
+    public List<Film> findPage(long afterId, int limit) {
+        return filmDao.findPage(afterId, limit);
+    }
+
+    public void streamAll(Consumer<Film> consumer) {
+        filmDao.streamAll(consumer);
+    }
+
     public Film findById(Long id) {
         return filmDao.findById(id)
                 .orElseThrow(() -> new NotFoundException(String.format(FILM_NOT_FOUND, id)));
@@ -55,10 +57,9 @@ public class FilmService {
 
     public Film update(Long id, Film film) {
         Film previous = findById(id);
-        filmDao.updateFilm(id, film);
-        log.debug("Film updated. Before: {}, after: {}", previous, film);
-        film.setDirectors(new HashSet<>(directorDao.findByFilmId(film.getId())));
-        return film;
+        Film updated = filmDao.updateFilm(id, film);
+        log.debug("Film updated. Before: {}, after: {}", previous, updated);
+        return updated;
     }
 
     public void removeFilm(Long id) {
@@ -72,27 +73,23 @@ public class FilmService {
 
     public void addLike(Long id, Long userId) {
         validateExisting(id, userId);
-        if (likesDao.isLikeExist(userId, id)) {
+        if (!likesDao.addLike(userId, id)) {
             log.debug("User with ID {} has already liked film with ID {}", userId, id);
             throw new LikeDoesntExistException(
                     String.format("User with ID %s has already liked film with ID %s", userId, id)
             );
         }
-        eventDao.addEvent(new Event(userId, Event.EventType.LIKE, Event.Operation.ADD, id));
-        likesDao.addLike(userId, id);
         log.debug("User {} liked film {}", userId, id);
     }
 
     public void removeLike(Long id, Long userId) {
         validateExisting(id, userId);
-        if (!likesDao.isLikeExist(userId, id)) {
+        if (!likesDao.removeLike(userId, id)) {
             log.debug("User with ID {} has not liked film with ID {}", userId, id);
             throw new LikeDoesntExistException(
                     String.format("User with ID %s has not liked film with ID %s", userId, id)
             );
         }
-        eventDao.addEvent(new Event(userId, Event.EventType.LIKE, Event.Operation.REMOVE, id));
-        likesDao.removeLike(userId, id);
         log.debug("User {} removed like from film {}", userId, id);
     }
 
@@ -118,14 +115,10 @@ public class FilmService {
         if (!directorDao.existsById(id)) {
             throw new NotFoundException(String.format("Director with ID = %d not found", id));
         }
-        return directorDao.findFilmsIdByDirectorId(id, sort).stream()
-                .map(filmDao::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+        return filmDao.findAllByIds(directorDao.findFilmsIdByDirectorId(id, sort));
     }
 
-    public List<Film> search(String query, List<String> params) {
+    public List<Film> search(String query, List<String> params, int offset, int limit) {
         boolean canMatchTitle = false;
         boolean canMatchDirector = false;
         for (String s : params) {
@@ -140,9 +133,7 @@ public class FilmService {
                     throw new IllegalArgumentException("Invalid request parameter :" + s);
             }
         }
-        String titleQuery = canMatchTitle ? query.toLowerCase() : query.toUpperCase();
-        String directorQuery = canMatchDirector ? query.toLowerCase() : query.toUpperCase();
-        return filmDao.findFilms('%' + titleQuery + '%', '%' + directorQuery + '%');
+        return filmDao.search(query, canMatchTitle, canMatchDirector, offset, limit);
     }
 
     private void validateExisting(Long filmId, Long userId) {
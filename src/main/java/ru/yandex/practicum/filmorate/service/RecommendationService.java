@@ -6,8 +6,6 @@ import ru.yandex.practicum.filmorate.dao.recommendation.RecommendationDao;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class RecommendationService {
@@ -21,11 +19,6 @@ public class RecommendationService {
     }
 
     public List<Film> getRecommendations(Long userId) {
-        List<Long> equalUserIds = recommendationDao.getEqualUserIds(userId);
-        return recommendationDao.getAbsentFilms(userId, equalUserIds).stream()
-                .map(filmDao::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+        return filmDao.findAllByIds(recommendationDao.findRecommendedFilmIds(userId));
     }
 }
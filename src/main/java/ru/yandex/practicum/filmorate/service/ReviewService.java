@@ -9,6 +9,7 @@ import ru.yandex.practicum.filmorate.exceptions.LikeDoesntExistException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewVote;
 
 import java.util.List;
 
@@ -89,10 +90,19 @@ public class ReviewService {
                     String.format("User with ID %s has not liked review with ID %s", userId, reviewId)
             );
         }
-        reviewDao.removeLike(reviewId, userId);
+        reviewDao.removeLike(reviewId, userId, isLike);
         log.debug("User {} removed like from review {}", userId, reviewId);
     }
 
+    /**
+     * Applies a batch of votes; missing reviews and users are reported per vote instead of failing the batch.
+     */
+    public List<ReviewVote> addLikes(List<ReviewVote> votes) {
+        List<ReviewVote> result = reviewDao.addLikes(votes);
+        log.debug("Applied batch of {} review votes", votes.size());
+        return result;
+    }
+
     private void validateExisting(Long reviewId, Long userId) {
         validateReviewExisting(reviewId);
         validateUserExisting(userId);
@@ -3,14 +3,16 @@ package ru.yandex.practicum.filmorate.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dao.event.EventDao;
+import ru.yandex.practicum.filmorate.dao.likes.LikesDao;
+import ru.yandex.practicum.filmorate.dao.review.ReviewDao;
 import ru.yandex.practicum.filmorate.dao.user.UserDao;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class UserService {
@@ -20,10 +22,14 @@ public class UserService {
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final UserDao userDao;
     private final EventDao eventDao;
+    private final LikesDao likesDao;
+    private final ReviewDao reviewDao;
 
-    public UserService(UserDao userDao, EventDao eventDao) {
+    public UserService(UserDao userDao, EventDao eventDao, LikesDao likesDao, ReviewDao reviewDao) {
         this.userDao = userDao;
         this.eventDao = eventDao;
+        this.likesDao = likesDao;
+        this.reviewDao = reviewDao;
     }
 
     public List<User> findAll() {
@@ -55,11 +61,14 @@ public class UserService {
         return user;
     }
 
+    @Transactional
     public void removeUser(Long id) {
         if (!userDao.existsById(id)) {
             log.debug(USER_WITH_ID_NOT_FOUND_DEBUG, id);
             throw new NotFoundException(String.format(USER_NOT_FOUND, id));
         }
+        likesDao.removeUserLikes(id);
+        reviewDao.removeUserLikes(id);
         userDao.deleteById(id);
         log.debug("User id {} has been removed.", id);
     }
@@ -86,23 +95,34 @@ public class UserService {
         throw new NotFoundException(String.format(USER_NOT_FOUND, id));
     }
 
-    public List<Event> getFeed(Long id) {
+    public List<Event> getFeedPage(Long id, Long before, int limit) {
+        validateFeedOwner(id);
+        return eventDao.getFeedPage(id, before == null ? Long.MAX_VALUE : before, limit);
+    }
+
+    public List<Event> getFriendsFeed(Long id, Long before, int limit) {
+        validateFeedOwner(id);
+        return eventDao.getFriendsFeed(id, before == null ? Long.MAX_VALUE : before, limit);
+    }
+
+    private void validateFeedOwner(Long id) {
         if (!userDao.existsById(id)) {
             log.debug(USER_WITH_ID_NOT_FOUND_DEBUG, id);
             throw new NotFoundException(String.format(USER_NOT_FOUND, id));
         }
-        return eventDao.getFeed(id);
     }
 
     public List<User> getCommonFriends(Long id, Long otherId) {
         validateUsers(id, otherId);
-        List<User> userList = userDao.getFriends(id);
-        List<User> otherUserList = userDao.getFriends(otherId);
+        return userDao.getCommonFriends(id, otherId);
+    }
 
-        return userList.stream()
-                .distinct()
-                .filter(otherUserList::contains)
-                .collect(Collectors.toList());
+    public List<User> getFriendSuggestions(Long id, int limit) {
+        if (!userDao.existsById(id)) {
+            log.debug(USER_WITH_ID_NOT_FOUND_DEBUG, id);
+            throw new NotFoundException(String.format(USER_NOT_FOUND, id));
+        }
+        return userDao.getFriendSuggestions(id, limit);
     }
 
     public boolean existById(Long id) {
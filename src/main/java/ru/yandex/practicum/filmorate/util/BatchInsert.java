@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BatchInsert {
+
+    private BatchInsert() {
+    }
+
+    /**
+     * Inserts all rows with one batched statement and returns the generated ids in the order of the rows.
+     *
+     * @param jdbcTemplate the template to run the statement with.
+     * @param sql          insert statement generating an {@code id} column.
+     * @param rows         parameters of the rows.
+     * @return {@link List} of generated ids.
+     */
+    public static List<Long> withKeys(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows) {
+        List<Long> ids = new ArrayList<>(rows.size());
+        if (rows.isEmpty()) {
+            return ids;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"})) {
+                for (Object[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        ps.setObject(i + 1, row[i]);
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+        if (ids.size() != rows.size()) {
+            throw new IllegalStateException(String.format("Expected %d generated ids but got %d", rows.size(),
+                    ids.size()));
+        }
+        return ids;
+    }
+}
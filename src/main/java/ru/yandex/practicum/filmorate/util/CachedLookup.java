@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.springframework.cache.Cache;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through lookups on caches of mutable models. Values are copied on the way into the cache and on the way
+ * out, so no caller ever holds a cached instance, and cache writes wait for the current transaction to commit,
+ * so a rolled back write never reaches the cache.
+ */
+public final class CachedLookup {
+
+    private CachedLookup() {
+    }
+
+    /**
+     * Returns values for the given ids, taking cached values from the cache and loading all missing ones
+     * with a single call to the loader. Loaded values are put into the cache.
+     *
+     * @param cache  the cache keyed by id.
+     * @param ids    ids of the values.
+     * @param type   type of the cached values.
+     * @param loader loads the values for the ids that are not cached.
+     * @param idOf   returns the id of a value.
+     * @param copy   copies a value.
+     * @return {@link Map} of values by id, without ids that exist neither in the cache nor in the database.
+     */
+    public static <T> Map<Long, T> findAll(Cache cache, Collection<Long> ids, Class<T> type,
+                                           Function<Collection<Long>, List<T>> loader, Function<T, Long> idOf,
+                                           UnaryOperator<T> copy) {
+        Map<Long, T> values = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (Long id : ids) {
+            T value = cache.get(id, type);
+            if (value != null) {
+                values.put(id, copy.apply(value));
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (T value : loader.apply(missing)) {
+                put(cache, idOf.apply(value), copy.apply(value));
+                values.put(idOf.apply(value), value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the value cached under the key, loading and caching it on a miss. Missing values are not cached.
+     *
+     * @param cache  the cache.
+     * @param key    key of the value.
+     * @param type   type of the cached value.
+     * @param loader loads the value if it is not cached.
+     * @param copy   copies a value.
+     * @return {@link Optional} of the value or empty {@link Optional}.
+     */
+    public static <T> Optional<T> find(Cache cache, Object key, Class<T> type, Supplier<Optional<T>> loader,
+                                       UnaryOperator<T> copy) {
+        T cached = cache.get(key, type);
+        if (cached != null) {
+            return Optional.of(copy.apply(cached));
+        }
+        Optional<T> loaded = loader.get();
+        loaded.ifPresent(value -> put(cache, key, copy.apply(value)));
+        return loaded;
+    }
+
+    /**
+     * Returns the list cached under the key, loading and caching it on a miss. The list is cached unmodifiable.
+     *
+     * @param cache  the cache.
+     * @param key    key of the list.
+     * @param loader loads the list if it is not cached.
+     * @param copy   copies an element.
+     * @return {@link List} of values.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> findList(Cache cache, Object key, Supplier<List<T>> loader, UnaryOperator<T> copy) {
+        List<T> cached = cache.get(key, List.class);
+        if (cached != null) {
+            return cached.stream().map(copy).collect(Collectors.toList());
+        }
+        List<T> loaded = loader.get();
+        put(cache, key, loaded.stream().map(copy).collect(Collectors.toUnmodifiableList()));
+        return loaded;
+    }
+
+    /**
+     * Puts the value into the cache after the current transaction is committed. The caller must not change
+     * the value afterwards.
+     */
+    public static void put(Cache cache, Object key, Object value) {
+        AfterCommit.run(() -> cache.put(key, value));
+    }
+
+    public static void evict(Cache cache, Object key) {
+        AfterCommit.run(() -> cache.evict(key));
+    }
+
+    public static void clear(Cache cache) {
+        AfterCommit.run(cache::clear);
+    }
+}
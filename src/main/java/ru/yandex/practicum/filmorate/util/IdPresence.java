@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Growable bit set of the ids present in a table, loaded on first use. A set bit means the row exists.
+ * A clear bit is not trusted: the table is queried and the bit is set if the row turns out to exist.
+ * The owning DAO adds ids after a successful insert and removes them after a delete.
+ */
+public class IdPresence {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String selectIdsSql;
+    private final String existsSql;
+    private final BitSet ids = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+
+    /**
+     * @param jdbcTemplate the template to query the table with.
+     * @param selectIdsSql selects all ids of the table.
+     * @param existsSql    checks a single id, taking it as the only parameter.
+     */
+    public IdPresence(JdbcTemplate jdbcTemplate, String selectIdsSql, String existsSql) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.selectIdsSql = selectIdsSql;
+        this.existsSql = existsSql;
+    }
+
+    public boolean contains(Long id) {
+        if (id == null) {
+            return false;
+        }
+        if (!loaded) {
+            load();
+        }
+        if (fits(id)) {
+            lock.readLock().lock();
+            try {
+                if (ids.get(id.intValue())) {
+                    return true;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        boolean exists = Boolean.TRUE.equals(jdbcTemplate.queryForObject(existsSql, Boolean.class, id));
+        if (exists) {
+            add(id);
+        }
+        return exists;
+    }
+
+    public void add(long id) {
+        if (!fits(id)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ids.set((int) id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        if (!fits(id)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ids.clear((int) id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            jdbcTemplate.query(selectIdsSql, rs -> {
+                long id = rs.getLong(1);
+                if (fits(id)) {
+                    ids.set((int) id);
+                }
+            });
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean fits(long id) {
+        return id >= 0 && id < Integer.MAX_VALUE;
+    }
+}
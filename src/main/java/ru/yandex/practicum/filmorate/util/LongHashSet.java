@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Growable hash set of longs with open addressing, changed in place without boxing or copying the whole set.
+ * Not thread safe, callers guard it with their own lock.
+ */
+public final class LongHashSet {
+
+    private static final long FREE = 0;
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] keys = new long[MIN_CAPACITY];
+    private boolean containsFree;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long value) {
+        if (value == FREE) {
+            return containsFree;
+        }
+        return keys[find(value)] == value;
+    }
+
+    /**
+     * Adds the value and returns whether it was not there yet.
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int slot = find(value);
+        if (keys[slot] == value) {
+            return false;
+        }
+        keys[slot] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the value and returns whether it was there. Values following it in the probe chain are
+     * shifted back, so lookups never need tombstones.
+     */
+    public boolean remove(long value) {
+        if (value == FREE) {
+            if (!containsFree) {
+                return false;
+            }
+            containsFree = false;
+            size--;
+            return true;
+        }
+        int slot = find(value);
+        if (keys[slot] != value) {
+            return false;
+        }
+        int mask = keys.length - 1;
+        keys[slot] = FREE;
+        size--;
+        for (int next = (slot + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = index(keys[next], mask);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                keys[next] = FREE;
+                slot = next;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes values to the action in no particular order until it returns {@code false}.
+     *
+     * @return {@code false} if the action stopped the walk.
+     */
+    public boolean forEachWhile(LongPredicate action) {
+        if (containsFree && !action.test(FREE)) {
+            return false;
+        }
+        for (long key : keys) {
+            if (key != FREE && !action.test(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long[] toArray() {
+        long[] result = new long[size];
+        int[] position = {0};
+        forEachWhile(value -> {
+            result[position[0]++] = value;
+            return true;
+        });
+        return result;
+    }
+
+    private int find(long value) {
+        int mask = keys.length - 1;
+        int slot = index(value, mask);
+        while (keys[slot] != FREE && keys[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] old = keys;
+        keys = new long[capacity];
+        int mask = capacity - 1;
+        for (long key : old) {
+            if (key != FREE) {
+                int slot = index(key, mask);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private static int index(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
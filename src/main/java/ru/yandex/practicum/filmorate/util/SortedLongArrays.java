@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/**
+ * Operations on sorted arrays of distinct longs used as compact id sets.
+ * Arrays are never modified in place, changing operations return a new array.
+ */
+public final class SortedLongArrays {
+
+    public static final long[] EMPTY = new long[0];
+
+    private SortedLongArrays() {
+    }
+
+    public static boolean contains(long[] set, long value) {
+        return Arrays.binarySearch(set, value) >= 0;
+    }
+
+    /**
+     * Returns the set with the value added or the same array if it is already there.
+     */
+    public static long[] insert(long[] set, long value) {
+        int index = Arrays.binarySearch(set, value);
+        if (index >= 0) {
+            return set;
+        }
+        int position = -index - 1;
+        long[] result = new long[set.length + 1];
+        System.arraycopy(set, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(set, position, result, position + 1, set.length - position);
+        return result;
+    }
+
+    /**
+     * Returns the set without the value or the same array if there is no such value.
+     */
+    public static long[] remove(long[] set, long value) {
+        int index = Arrays.binarySearch(set, value);
+        if (index < 0) {
+            return set;
+        }
+        if (set.length == 1) {
+            return EMPTY;
+        }
+        long[] result = new long[set.length - 1];
+        System.arraycopy(set, 0, result, 0, index);
+        System.arraycopy(set, index + 1, result, index, set.length - index - 1);
+        return result;
+    }
+
+    /**
+     * Returns the values present in both sets in a single merge pass.
+     */
+    public static long[] intersect(long[] first, long[] second) {
+        long[] result = new long[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Builds a set from values in any order, dropping duplicates.
+     */
+    public static long[] of(long[] values, int length) {
+        long[] result = Arrays.copyOf(values, length);
+        Arrays.sort(result);
+        int size = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[size++] = result[i];
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+}
@@ -25,7 +25,8 @@ CREATE TABLE IF NOT EXISTS film
     description  varchar(200),
     release_date date         NOT NULL,
     duration     integer      NOT NULL,
-    mpa_id       integer
+    mpa_id       integer,
+    likes_count  bigint       NOT NULL DEFAULT 0
 );
 
 CREATE TABLE IF NOT EXISTS review
@@ -34,7 +35,8 @@ CREATE TABLE IF NOT EXISTS review
     content     varchar(255) NOT NULL,
     is_positive boolean      NOT NULL,
     user_id     bigint       NOT NULL,
-    film_id     bigint       NOT NULL
+    film_id     bigint       NOT NULL,
+    useful      bigint       NOT NULL DEFAULT 0
 );
 
 CREATE TABLE IF NOT EXISTS review_likes
@@ -91,6 +93,20 @@ CREATE TABLE IF NOT EXISTS user_friend
     PRIMARY KEY (user_id, friend_id)
 );
 
+-- Columns added to existing databases are created nullable, filled once from the rows they summarize
+-- and only then made NOT NULL, so the fill runs on the first start after the upgrade only.
+ALTER TABLE film ADD COLUMN IF NOT EXISTS likes_count bigint;
+UPDATE film f SET likes_count = (SELECT COUNT(*) FROM film_likes l WHERE l.film_id = f.id)
+WHERE likes_count IS NULL;
+ALTER TABLE film ALTER COLUMN likes_count SET DEFAULT 0;
+ALTER TABLE film ALTER COLUMN likes_count SET NOT NULL;
+ALTER TABLE review ADD COLUMN IF NOT EXISTS useful bigint;
+UPDATE review r SET useful = (SELECT COALESCE(SUM(CASE WHEN l.is_like THEN 1 ELSE -1 END), 0)
+                              FROM review_likes l WHERE l.review_id = r.id)
+WHERE useful IS NULL;
+ALTER TABLE review ALTER COLUMN useful SET DEFAULT 0;
+ALTER TABLE review ALTER COLUMN useful SET NOT NULL;
+
 ALTER TABLE user_friend
     ADD CONSTRAINT IF NOT EXISTS fk_user_to_user FOREIGN KEY (user_id) REFERENCES app_user (id) ON DELETE CASCADE;
 ALTER TABLE user_friend
@@ -112,4 +128,9 @@ ALTER TABLE review_likes
 ALTER TABLE film_director
     ADD CONSTRAINT IF NOT EXISTS fk_film_director_to_film FOREIGN KEY (film_id) REFERENCES film (id) ON DELETE CASCADE;
 ALTER TABLE film_director
-    ADD CONSTRAINT IF NOT EXISTS fk_film_director_to_director FOREIGN KEY (director_id) REFERENCES director (id) ON DELETE CASCADE;
\ No newline at end of file
+    ADD CONSTRAINT IF NOT EXISTS fk_film_director_to_director FOREIGN KEY (director_id) REFERENCES director (id) ON DELETE CASCADE;
+
+CREATE INDEX IF NOT EXISTS film_director_film_id_idx ON film_director (film_id);
+CREATE INDEX IF NOT EXISTS event_user_id_id_idx ON event (user_id, id);
+CREATE INDEX IF NOT EXISTS review_film_id_useful_idx ON review (film_id, useful DESC, id);
+CREATE INDEX IF NOT EXISTS review_useful_idx ON review (useful DESC, id);
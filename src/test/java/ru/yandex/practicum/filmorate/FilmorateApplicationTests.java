@@ -1,27 +1,68 @@
 package ru.yandex.practicum.filmorate;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.director.DirectorDao;
+import ru.yandex.practicum.filmorate.dao.event.EventDao;
+import ru.yandex.practicum.filmorate.dao.event.EventJournal;
+import ru.yandex.practicum.filmorate.dao.event.FeedTimelines;
+import ru.yandex.practicum.filmorate.dao.film.FilmCache;
 import ru.yandex.practicum.filmorate.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.dao.film.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.dao.genre.GenreDao;
+import ru.yandex.practicum.filmorate.dao.likes.LikeMatrix;
+import ru.yandex.practicum.filmorate.dao.likes.LikeWriteBuffer;
 import ru.yandex.practicum.filmorate.dao.likes.LikesDao;
+import ru.yandex.practicum.filmorate.dao.likes.PopularFilmsRanking;
 import ru.yandex.practicum.filmorate.dao.mpa.MpaDao;
+import ru.yandex.practicum.filmorate.dao.recommendation.RecommendationDao;
+import ru.yandex.practicum.filmorate.dao.review.ReviewDao;
+import ru.yandex.practicum.filmorate.dao.review.ReviewDaoImpl;
+import ru.yandex.practicum.filmorate.dao.review.ReviewLeaderboard;
+import ru.yandex.practicum.filmorate.dao.user.FriendGraph;
 import ru.yandex.practicum.filmorate.dao.user.UserDao;
+import ru.yandex.practicum.filmorate.mapper.RowEventMapper;
+import ru.yandex.practicum.filmorate.metrics.StatementCounter;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportReport;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewVote;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
-@SpringBootTest
+@SpringBootTest(properties = "filmorate.metrics.statements.enabled=true")
 @AutoConfigureTestDatabase
 class FilmorateApplicationTests {
 
@@ -30,15 +71,49 @@ class FilmorateApplicationTests {
     private final GenreDao genreDao;
     private final MpaDao mpaDao;
     private final LikesDao likesDao;
+    private final DirectorDao directorDao;
+    private final RecommendationDao recommendationDao;
+    private final StatementCounter statementCounter;
+    private final FilmSearchIndex searchIndex;
+    private final EventDao eventDao;
+    private final EventJournal eventJournal;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final PopularFilmsRanking ranking;
+    private final LikeMatrix likeMatrix;
+    private final FriendGraph friendGraph;
+    private final ReviewService reviewService;
+    private final UserService userService;
+    private final FilmImportService filmImportService;
 
     @Autowired
     public FilmorateApplicationTests(UserDao userDao, FilmDao filmDao, GenreDao genreDao,
-                                     MpaDao mpaDao, LikesDao likesDao) {
+                                     MpaDao mpaDao, LikesDao likesDao, DirectorDao directorDao,
+                                     RecommendationDao recommendationDao, StatementCounter statementCounter,
+                                     FilmSearchIndex searchIndex, EventDao eventDao, EventJournal eventJournal,
+                                     JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager, PopularFilmsRanking ranking,
+                                     LikeMatrix likeMatrix, FriendGraph friendGraph, ReviewService reviewService,
+                                     UserService userService, FilmImportService filmImportService) {
         this.userDao = userDao;
         this.filmDao = filmDao;
         this.genreDao = genreDao;
         this.mpaDao = mpaDao;
         this.likesDao = likesDao;
+        this.directorDao = directorDao;
+        this.recommendationDao = recommendationDao;
+        this.statementCounter = statementCounter;
+        this.searchIndex = searchIndex;
+        this.eventDao = eventDao;
+        this.eventJournal = eventJournal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.ranking = ranking;
+        this.likeMatrix = likeMatrix;
+        this.friendGraph = friendGraph;
+        this.reviewService = reviewService;
+        this.userService = userService;
+        this.filmImportService = filmImportService;
     }
 
     @Test
@@ -58,6 +133,260 @@ class FilmorateApplicationTests {
         assertThat(filmDao.existsById(two.getId())).isFalse();
     }
 
+    @Test
+    void filmDaoFindAllByIdsTest() {
+        Film one = filmDao.createFilm(createFilmObject("By id one"));
+        Film two = filmDao.createFilm(createFilmObject("By id two"));
+        assertThat(filmDao.findAllByIds(List.of(two.getId(), -1L, one.getId()))).containsExactly(two, one);
+        filmDao.deleteById(one.getId());
+        filmDao.deleteById(two.getId());
+    }
+
+    @Test
+    void filmDaoPageAndStreamTest() {
+        Film one = filmDao.createFilm(createFilmObject("Paged one"));
+        Film two = filmDao.createFilm(createFilmObject("Paged two"));
+        assertThat(filmDao.findPage(one.getId(), 1)).containsExactly(two);
+        List<Film> streamed = new ArrayList<>();
+        filmDao.streamAll(streamed::add);
+        assertThat(streamed).contains(one, two).isSortedAccordingTo(Comparator.comparing(Film::getId));
+        filmDao.deleteById(one.getId());
+        filmDao.deleteById(two.getId());
+    }
+
+    @Test
+    void filmAssociationChurnTest() {
+        List<Genre> genres = genreDao.findAll();
+        List<Director> directors = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Director director = new Director();
+            director.setName("Churn director " + i);
+            directors.add(directorDao.createDirector(director));
+        }
+        Film film = filmDao.createFilm(createFilmObject("Churned"));
+        Random random = new Random(25);
+        for (int round = 0; round < 50; round++) {
+            Set<Genre> newGenres = new HashSet<>();
+            genres.stream().filter(genre -> random.nextInt(3) == 0).forEach(genre -> {
+                Genre idOnly = new Genre();
+                idOnly.setId(genre.getId());
+                newGenres.add(idOnly);
+            });
+            Set<Director> newDirectors = new HashSet<>();
+            directors.stream().filter(director -> random.nextInt(3) == 0).forEach(director -> {
+                Director idOnly = new Director();
+                idOnly.setId(director.getId());
+                newDirectors.add(idOnly);
+            });
+            Set<Long> genreIds = newGenres.stream().map(Genre::getId).collect(Collectors.toSet());
+            Set<Long> directorIds = newDirectors.stream().map(Director::getId).collect(Collectors.toSet());
+            film.setGenres(newGenres);
+            film.setDirectors(newDirectors);
+
+            Film updated = filmDao.updateFilm(film.getId(), film);
+            assertThat(updated.getGenres()).extracting(Genre::getId).containsExactlyInAnyOrderElementsOf(genreIds);
+            assertThat(updated.getGenres()).extracting(Genre::getName).doesNotContainNull();
+            assertThat(updated.getDirectors()).extracting(Director::getId)
+                    .containsExactlyInAnyOrderElementsOf(directorIds);
+            assertThat(updated.getDirectors()).extracting(Director::getName).allMatch(name ->
+                    name.startsWith("Churn director"));
+            assertThat(filmDao.findById(film.getId())).hasValueSatisfying(stored -> {
+                assertThat(stored.getGenres()).isEqualTo(updated.getGenres());
+                assertThat(stored.getDirectors()).isEqualTo(updated.getDirectors());
+            });
+        }
+        filmDao.deleteById(film.getId());
+        directors.forEach(director -> directorDao.deleteById(director.getId()));
+    }
+
+    @Test
+    void filmImportTest() throws IOException {
+        Genre drama = genreDao.findById(2L).orElseThrow();
+        String films = String.join("\n",
+                "{\"name\":\"Imported\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1}," +
+                        "\"genres\":[{\"name\":\"" + drama.getName() + "\"}]," +
+                        "\"directors\":[{\"name\":\"Imported director\"}]}",
+                "",
+                "{\"name\":\"Unknown mpa\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":-1}}",
+                "not json",
+                "{\"name\":\"Imported second\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1}," +
+                        "\"genres\":[{\"id\":2}],\"directors\":[{\"name\":\"Imported director\"}]}");
+        FilmImportReport report = filmImportService.importFilms(new StringReader(films));
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(2);
+        assertThat(report.getFailures()).extracting(FilmImportReport.Failure::getLine).containsExactly(3L, 4L);
+        List<Film> imported = filmDao.findAll().stream()
+                .filter(film -> film.getName().startsWith("Imported"))
+                .collect(Collectors.toList());
+        assertThat(imported).hasSize(2).allSatisfy(film -> {
+            assertThat(film.getGenres()).containsExactly(drama);
+            assertThat(film.getDirectors()).extracting(Director::getName).containsExactly("Imported director");
+        });
+        assertThat(imported.get(0).getDirectors()).isEqualTo(imported.get(1).getDirectors());
+        imported.forEach(film -> filmDao.deleteById(film.getId()));
+        directorDao.deleteById(imported.get(0).getDirectors().iterator().next().getId());
+    }
+
+    @Test
+    void filmListHydrationStatementCountTest() {
+        Director director = new Director();
+        director.setName("Hydration director");
+        director = directorDao.createDirector(director);
+        Genre genre = genreDao.findById(2L).orElseThrow();
+        Film first = createFilmObject("Hydrated");
+        first.setGenres(Set.of(genre));
+        first.setDirectors(Set.of(director));
+        first = filmDao.createFilm(first);
+
+        filmDao.findAll();
+        statementCounter.start();
+        filmDao.findAll();
+        int statements = statementCounter.stop();
+
+        for (int i = 0; i < 10; i++) {
+            Film film = createFilmObject("Hydrated " + i);
+            film.setGenres(Set.of(genre));
+            film.setDirectors(Set.of(director));
+            filmDao.createFilm(film);
+        }
+        statementCounter.start();
+        List<Film> films = filmDao.findAll();
+        assertThat(statementCounter.stop()).isEqualTo(statements).isEqualTo(3);
+        assertThat(films).filteredOn(first::equals).singleElement().satisfies(film -> {
+            assertThat(film.getGenres()).containsExactly(genre);
+            assertThat(film.getDirectors()).extracting(Director::getName).containsExactly("Hydration director");
+        });
+    }
+
+    @Test
+    void referenceDataCacheTest() {
+        genreDao.findById(3L);
+        mpaDao.findAll();
+        statementCounter.start();
+        assertThat(genreDao.findById(3L)).isPresent();
+        assertThat(mpaDao.findAll()).hasSize(5);
+        assertThat(statementCounter.stop()).isZero();
+        genreDao.findById(3L).orElseThrow().setName("Changed");
+        mpaDao.findAll().get(0).setName("Changed");
+        assertThat(genreDao.findById(3L)).hasValueSatisfying(genre ->
+                assertThat(genre.getName()).isNotEqualTo("Changed"));
+        assertThat(mpaDao.findAll().get(0).getName()).isNotEqualTo("Changed");
+
+        Director director = new Director();
+        director.setName("Cached director");
+        director = directorDao.createDirector(director);
+        Film film = createFilmObject("Cached");
+        film.setDirectors(Set.of(director));
+        film = filmDao.createFilm(film);
+        director.setName("Renamed director");
+        directorDao.updateDirector(director);
+        assertThat(directorDao.findAll()).extracting(Director::getName).contains("Renamed director");
+        assertThat(filmDao.findById(film.getId())).hasValueSatisfying(cached ->
+                assertThat(cached.getDirectors()).extracting(Director::getName).containsExactly("Renamed director"));
+        Director rolledBack = new Director();
+        rolledBack.setId(director.getId());
+        rolledBack.setName("Rolled back director");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            directorDao.updateDirector(rolledBack);
+            status.setRollbackOnly();
+        });
+        assertThat(directorDao.findById(director.getId())).hasValueSatisfying(cached ->
+                assertThat(cached.getName()).isEqualTo("Renamed director"));
+        directorDao.deleteById(director.getId());
+        assertThat(directorDao.findById(director.getId())).isEmpty();
+        assertThat(filmDao.findById(film.getId())).hasValueSatisfying(cached ->
+                assertThat(cached.getDirectors()).isEmpty());
+    }
+
+    @Test
+    void filmCacheTest() {
+        Film film = filmDao.createFilm(createFilmObject("Cached film"));
+        Film loaded = filmDao.findById(film.getId()).orElseThrow();
+        loaded.setName("Changed outside");
+        loaded.getGenres().add(genreDao.findById(1L).orElseThrow());
+
+        statementCounter.start();
+        Film cached = filmDao.findById(film.getId()).orElseThrow();
+        assertThat(filmDao.findAllByIds(List.of(film.getId()))).containsExactly(cached);
+        assertThat(statementCounter.stop()).isZero();
+        assertThat(cached.getName()).isEqualTo("Cached film");
+        assertThat(cached.getGenres()).isEmpty();
+
+        cached.setName("Updated film");
+        filmDao.updateFilm(cached.getId(), cached);
+        assertThat(filmDao.findById(film.getId())).hasValueSatisfying(updated ->
+                assertThat(updated.getName()).isEqualTo("Updated film"));
+        filmDao.deleteById(film.getId());
+        assertThat(filmDao.findById(film.getId())).isEmpty();
+        assertThat(filmDao.findAllByIds(List.of(film.getId()))).isEmpty();
+
+        FilmCache racing = new FilmCache(new SimpleMeterRegistry(), 1 << 20, Duration.ofMinutes(10));
+        Film stale = createFilmObject("Stale");
+        stale.setId(1L);
+        // the film is updated and invalidated while the bulk load still holds its old state
+        racing.getAll(List.of(1L), ids -> {
+            racing.invalidate(1L);
+            return List.of(stale);
+        });
+        Film fresh = createFilmObject("Fresh");
+        fresh.setId(1L);
+        assertThat(racing.get(1L, id -> fresh)).hasValueSatisfying(cachedFilm ->
+                assertThat(cachedFilm.getName()).isEqualTo("Fresh"));
+    }
+
+    @Test
+    void idPresenceTest() {
+        User user = userDao.createUser(createUserObject("Present"));
+        Film film = filmDao.createFilm(createFilmObject("Present film"));
+        userDao.existsById(user.getId());
+        filmDao.existsById(film.getId());
+
+        statementCounter.start();
+        assertThat(userDao.existsById(user.getId())).isTrue();
+        assertThat(filmDao.existsById(film.getId())).isTrue();
+        assertThat(statementCounter.stop()).isZero();
+
+        assertThat(userDao.existsById(null)).isFalse();
+        assertThat(userDao.existsById(Long.MAX_VALUE)).isFalse();
+        userDao.deleteById(user.getId());
+        filmDao.deleteById(film.getId());
+        assertThat(userDao.existsById(user.getId())).isFalse();
+        assertThat(filmDao.existsById(film.getId())).isFalse();
+    }
+
+    @Test
+    void filmSearchIndexTest() {
+        Director director = new Director();
+        director.setName("Lana Wachowskaya");
+        director = directorDao.createDirector(director);
+        Film matrix = createFilmObject("The Matrix");
+        matrix.setDirectors(Set.of(director));
+        matrix = filmDao.createFilm(matrix);
+        Film reloaded = filmDao.createFilm(createFilmObject("Matrixes Reloaded"));
+        Film animatrix = filmDao.createFilm(createFilmObject("Animatrix"));
+
+        assertThat(searchIndex.search("matrix", true, false, 0, 10))
+                .containsExactly(matrix.getId(), reloaded.getId(), animatrix.getId());
+        assertThat(searchIndex.search("MATRIX", true, false, 1, 1)).containsExactly(reloaded.getId());
+        assertThat(searchIndex.search("the matr", true, false, 0, 10)).containsExactly(matrix.getId());
+        assertThat(searchIndex.search("matrx", true, false, 0, 10)).containsExactly(matrix.getId());
+        assertThat(searchIndex.search("matrex", true, false, 0, 10)).containsExactly(matrix.getId());
+        assertThat(searchIndex.search("ma", true, false, 0, 10))
+                .contains(matrix.getId(), reloaded.getId()).doesNotContain(animatrix.getId());
+        assertThat(searchIndex.search("wachow", true, false, 0, 10)).isEmpty();
+        assertThat(searchIndex.search("wachow", false, true, 0, 10)).containsExactly(matrix.getId());
+
+        director.setName("Lilly Wachowskaya");
+        directorDao.updateDirector(director);
+        assertThat(searchIndex.search("lana", false, true, 0, 10)).isEmpty();
+        assertThat(searchIndex.search("lilly", false, true, 0, 10)).containsExactly(matrix.getId());
+
+        filmDao.deleteById(matrix.getId());
+        assertThat(searchIndex.search("matrix", true, true, 0, 10))
+                .containsExactly(reloaded.getId(), animatrix.getId());
+    }
+
     @Test
     void userDaoTest() {
         List<User> users = new ArrayList<>();
@@ -96,6 +425,370 @@ class FilmorateApplicationTests {
                 .hasFieldOrPropertyWithValue("name", "One");
     }
 
+    @Test
+    void likeChangesStateOnceTest() {
+        Film film = filmDao.createFilm(createFilmObject("Liked once"));
+        User user = userDao.createUser(createUserObject("Liker"));
+        assertThat(likesDao.addLike(user.getId(), film.getId())).isTrue();
+        assertThat(likesDao.addLike(user.getId(), film.getId())).isFalse();
+        assertThat(likesDao.removeLike(user.getId(), film.getId())).isTrue();
+        assertThat(likesDao.removeLike(user.getId(), film.getId())).isFalse();
+        assertThat(eventDao.getFeedPage(user.getId(), Long.MAX_VALUE, 100))
+                .extracting(Event::getOperation)
+                .containsExactly(Event.Operation.ADD, Event.Operation.REMOVE);
+    }
+
+    @Test
+    void eventJournalTest() {
+        User user = userDao.createUser(createUserObject("Journaled"));
+        statementCounter.start();
+        for (long entityId = 1; entityId <= 3; entityId++) {
+            eventDao.addEvent(new Event(user.getId(), Event.EventType.REVIEW, Event.Operation.ADD, entityId));
+        }
+        assertThat(statementCounter.stop()).isZero();
+        assertThat(eventDao.getFeedPage(user.getId(), Long.MAX_VALUE, 100)).extracting(Event::getEntityId)
+                .containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void eventJournalOverflowTest() {
+        User user = userDao.createUser(createUserObject("Overflowing"));
+        FeedTimelines timelines = new FeedTimelines(jdbcTemplate, new RowEventMapper(), friendGraph, 10, 10, 10);
+        User reader = userDao.createUser(createUserObject("Overflow reader"));
+        userDao.addFriend(reader.getId(), user.getId());
+        assertThat(timelines.page(reader.getId(), Long.MAX_VALUE, 10)).isEmpty();
+        EventJournal journal = new EventJournal(jdbcTemplate, transactionManager, timelines,
+                new SimpleMeterRegistry(), "async", "write-through", 1, 10, 1);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            journal.publish(new Event(user.getId(), Event.EventType.LIKE, Event.Operation.ADD, 1L));
+            journal.publish(new Event(user.getId(), Event.EventType.LIKE, Event.Operation.ADD, 2L));
+        });
+        String selectEntities = "SELECT entity_id FROM event WHERE user_id = ? ORDER BY id";
+        assertThat(jdbcTemplate.queryForList(selectEntities, Long.class, user.getId())).containsExactly(2L);
+        assertThat(timelines.page(reader.getId(), Long.MAX_VALUE, 10)).extracting(Event::getEntityId)
+                .containsExactly(2L);
+        journal.flush();
+        assertThat(jdbcTemplate.queryForList(selectEntities, Long.class, user.getId())).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void commonFriendsTest() {
+        User user = userDao.createUser(createUserObject("Left"));
+        User other = userDao.createUser(createUserObject("Right"));
+        List<User> friends = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            friends.add(userDao.createUser(createUserObject("Mutual" + i)));
+        }
+        for (int i = 0; i < 3; i++) {
+            userDao.addFriend(user.getId(), friends.get(i).getId());
+            userDao.addFriend(other.getId(), friends.get(i + 1).getId());
+        }
+        assertThat(userDao.getCommonFriends(user.getId(), other.getId()))
+                .containsExactly(friends.get(1), friends.get(2));
+
+        userDao.removeFriend(other.getId(), friends.get(1).getId());
+        userDao.deleteById(friends.get(2).getId());
+        assertThat(userDao.getCommonFriends(user.getId(), other.getId())).isEmpty();
+    }
+
+    @Test
+    void friendSuggestionsTest() {
+        User user = userDao.createUser(createUserObject("Lonely"));
+        List<User> friends = new ArrayList<>();
+        List<User> candidates = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            friends.add(userDao.createUser(createUserObject("Friend" + i)));
+            userDao.addFriend(user.getId(), friends.get(i).getId());
+        }
+        for (int i = 0; i < 4; i++) {
+            candidates.add(userDao.createUser(createUserObject("Candidate" + i)));
+        }
+        for (int i = 0; i < 3; i++) {
+            userDao.addFriend(friends.get(i).getId(), candidates.get(0).getId());
+        }
+        userDao.addFriend(friends.get(0).getId(), candidates.get(1).getId());
+        userDao.addFriend(friends.get(1).getId(), candidates.get(1).getId());
+        userDao.addFriend(friends.get(2).getId(), candidates.get(3).getId());
+        userDao.addFriend(friends.get(2).getId(), candidates.get(2).getId());
+        userDao.addFriend(friends.get(0).getId(), friends.get(1).getId());
+        userDao.addFriend(friends.get(0).getId(), user.getId());
+        assertThat(userDao.getFriendSuggestions(user.getId(), 3))
+                .containsExactly(candidates.get(0), candidates.get(1), candidates.get(2));
+
+        userDao.addFriend(user.getId(), candidates.get(0).getId());
+        assertThat(userDao.getFriendSuggestions(user.getId(), 10))
+                .containsExactly(candidates.get(1), candidates.get(2), candidates.get(3));
+    }
+
+    @Test
+    void reviewUsefulTest() {
+        Film film = filmDao.createFilm(createFilmObject("Reviewed"));
+        User author = userDao.createUser(createUserObject("Critic"));
+        List<User> voters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            voters.add(userDao.createUser(createUserObject("Voter" + i)));
+        }
+        Review first = reviewService.create(createReviewObject(author, film));
+        Review second = reviewService.create(createReviewObject(author, film));
+        reviewService.addLike(second.getReviewId(), voters.get(0).getId(), true);
+        reviewService.addLike(second.getReviewId(), voters.get(1).getId(), true);
+        reviewService.addLike(first.getReviewId(), voters.get(2).getId(), false);
+        assertThat(reviewService.findByFilmId(film.getId(), 10))
+                .extracting(Review::getReviewId, Review::getUseful)
+                .containsExactly(tuple(second.getReviewId(), 2L), tuple(first.getReviewId(), -1L));
+
+        reviewService.removeLike(second.getReviewId(), voters.get(0).getId(), true);
+        userService.removeUser(voters.get(1).getId());
+        assertThat(reviewService.findById(second.getReviewId()).getUseful()).isZero();
+        userService.removeUser(voters.get(2).getId());
+        assertThat(reviewService.findByFilmId(film.getId(), 1))
+                .extracting(Review::getReviewId, Review::getUseful)
+                .containsExactly(tuple(first.getReviewId(), 0L));
+        filmDao.deleteById(film.getId());
+    }
+
+    @Test
+    void reviewLeaderboardTest() {
+        Film film = filmDao.createFilm(createFilmObject("Ranked"));
+        User author = userDao.createUser(createUserObject("Ranker"));
+        List<User> voters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            voters.add(userDao.createUser(createUserObject("Ranking voter" + i)));
+        }
+        ReviewLeaderboard leaderboard = new ReviewLeaderboard(jdbcTemplate, new SimpleMeterRegistry(), 2, 10);
+        ReviewDao reviewDao = new ReviewDaoImpl(jdbcTemplate, leaderboard, 500);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(reviewDao.createReview(createReviewObject(author, film)).getReviewId());
+        }
+        reviewDao.addLike(ids.get(0), voters.get(0).getId(), true);
+        reviewDao.addLike(ids.get(0), voters.get(1).getId(), true);
+        reviewDao.addLike(ids.get(1), voters.get(0).getId(), true);
+        assertThat(reviewDao.findByFilmId(film.getId(), 2)).extracting(Review::getReviewId)
+                .containsExactly(ids.get(0), ids.get(1));
+
+        reviewDao.removeLike(ids.get(0), voters.get(0).getId(), true);
+        reviewDao.removeLike(ids.get(0), voters.get(1).getId(), true);
+        statementCounter.start();
+        assertThat(reviewDao.findByFilmId(film.getId(), 1)).extracting(Review::getReviewId)
+                .containsExactly(ids.get(1));
+        assertThat(statementCounter.stop()).isZero();
+        assertThat(reviewDao.findByFilmId(film.getId(), 2)).extracting(Review::getReviewId)
+                .containsExactly(ids.get(1), ids.get(0));
+
+        reviewDao.addLike(ids.get(2), voters.get(2).getId(), true);
+        statementCounter.start();
+        assertThat(reviewDao.findByFilmId(film.getId(), 2)).extracting(Review::getReviewId, Review::getUseful)
+                .containsExactly(tuple(ids.get(1), 1L), tuple(ids.get(2), 1L));
+        assertThat(statementCounter.stop()).isZero();
+
+        // a late callback carrying an outdated score must not win over the stored one
+        Review stale = createReviewObject(author, film);
+        stale.setReviewId(ids.get(0));
+        stale.setUseful(5L);
+        leaderboard.refresh(List.of(stale));
+        assertThat(reviewDao.findByFilmId(film.getId(), 2)).extracting(Review::getReviewId, Review::getUseful)
+                .containsExactly(tuple(ids.get(1), 1L), tuple(ids.get(2), 1L));
+
+        leaderboard.top(film.getId(), 1).get(0).setUseful(100L);
+        assertThat(leaderboard.top(film.getId(), 1)).extracting(Review::getUseful).containsExactly(1L);
+        filmDao.deleteById(film.getId());
+    }
+
+    @Test
+    void reviewVotesBatchTest() {
+        Film film = filmDao.createFilm(createFilmObject("Viral"));
+        User author = userDao.createUser(createUserObject("Viral critic"));
+        List<Long> voters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            voters.add(userDao.createUser(createUserObject("Batch voter" + i)).getId());
+        }
+        ReviewDao reviewDao = new ReviewDaoImpl(jdbcTemplate,
+                new ReviewLeaderboard(jdbcTemplate, new SimpleMeterRegistry(), 10, 10), 2);
+        Long reviewId = reviewDao.createReview(createReviewObject(author, film)).getReviewId();
+        reviewDao.addLike(reviewId, voters.get(0), false);
+        assertThat(reviewDao.findByFilmId(film.getId(), 1)).extracting(Review::getUseful).containsExactly(-1L);
+
+        List<ReviewVote> votes = reviewDao.addLikes(List.of(
+                new ReviewVote(reviewId, voters.get(0), true),
+                new ReviewVote(reviewId, voters.get(1), true),
+                new ReviewVote(reviewId, voters.get(1), true),
+                new ReviewVote(reviewId, voters.get(2), false),
+                new ReviewVote(reviewId, voters.get(2), true),
+                new ReviewVote(-1L, voters.get(0), true),
+                new ReviewVote(reviewId, -1L, true)));
+        assertThat(votes).extracting(ReviewVote::getStatus).containsExactly(ReviewVote.Status.APPLIED,
+                ReviewVote.Status.APPLIED, ReviewVote.Status.UNCHANGED, ReviewVote.Status.APPLIED,
+                ReviewVote.Status.APPLIED, ReviewVote.Status.REVIEW_NOT_FOUND, ReviewVote.Status.USER_NOT_FOUND);
+        assertThat(reviewDao.findById(reviewId)).hasValueSatisfying(review ->
+                assertThat(review.getUseful()).isEqualTo(3L));
+        assertThat(reviewDao.isLikeExist(reviewId, voters.get(2), true)).isTrue();
+        assertThat(reviewDao.findByFilmId(film.getId(), 1)).extracting(Review::getUseful).containsExactly(3L);
+        filmDao.deleteById(film.getId());
+    }
+
+    @Test
+    void friendsFeedTest() {
+        User reader = userDao.createUser(createUserObject("Reader"));
+        User friend = userDao.createUser(createUserObject("Friend"));
+        User popular = userDao.createUser(createUserObject("Popular"));
+        User stranger = userDao.createUser(createUserObject("Stranger"));
+        userDao.addFriend(reader.getId(), friend.getId());
+        userDao.addFriend(reader.getId(), popular.getId());
+        eventDao.addEvent(new Event(friend.getId(), Event.EventType.LIKE, Event.Operation.ADD, 1L));
+        eventDao.addEvent(new Event(popular.getId(), Event.EventType.LIKE, Event.Operation.ADD, 2L));
+        eventDao.addEvent(new Event(stranger.getId(), Event.EventType.LIKE, Event.Operation.ADD, 3L));
+        eventJournal.flush();
+        assertThat(eventDao.getFriendsFeed(reader.getId(), Long.MAX_VALUE, 10))
+                .extracting(Event::getEntityId).containsExactly(1L, 2L);
+
+        eventDao.addEvent(new Event(friend.getId(), Event.EventType.LIKE, Event.Operation.REMOVE, 1L));
+        eventJournal.flush();
+        List<Event> latest = eventDao.getFriendsFeed(reader.getId(), Long.MAX_VALUE, 2);
+        assertThat(latest).extracting(Event::getEntityId).containsExactly(2L, 1L);
+        assertThat(eventDao.getFriendsFeed(reader.getId(), latest.get(0).getId(), 2))
+                .extracting(Event::getEntityId).containsExactly(1L);
+
+        FeedTimelines truncated = new FeedTimelines(jdbcTemplate, new RowEventMapper(), friendGraph, 1, 10, 10);
+        FeedTimelines fanIn = new FeedTimelines(jdbcTemplate, new RowEventMapper(), friendGraph, 10, 0, 10);
+        for (FeedTimelines timelines : List.of(truncated, fanIn)) {
+            assertThat(timelines.page(reader.getId(), Long.MAX_VALUE, 10))
+                    .extracting(Event::getEntityId).containsExactly(1L, 2L, 1L);
+        }
+        userDao.removeFriend(reader.getId(), popular.getId());
+        assertThat(eventDao.getFriendsFeed(reader.getId(), Long.MAX_VALUE, 10))
+                .extracting(Event::getOperation).containsExactly(Event.Operation.ADD, Event.Operation.REMOVE);
+    }
+
+    @Test
+    void feedPageTest() {
+        User user = userDao.createUser(createUserObject("Feed owner"));
+        for (long entityId = 1; entityId <= 5; entityId++) {
+            eventDao.addEvent(new Event(user.getId(), Event.EventType.FRIEND, Event.Operation.ADD, entityId));
+        }
+        List<Event> feed = eventDao.getFeedPage(user.getId(), Long.MAX_VALUE, 100);
+        assertThat(feed).extracting(Event::getEntityId).containsExactly(1L, 2L, 3L, 4L, 5L);
+
+        List<Event> latest = eventDao.getFeedPage(user.getId(), Long.MAX_VALUE, 2);
+        assertThat(latest).extracting(Event::getEntityId).containsExactly(4L, 5L);
+        List<Event> previous = eventDao.getFeedPage(user.getId(), latest.get(0).getId(), 2);
+        assertThat(previous).extracting(Event::getEntityId).containsExactly(2L, 3L);
+        assertThat(eventDao.getFeedPage(user.getId(), previous.get(0).getId(), 2))
+                .extracting(Event::getEntityId).containsExactly(1L);
+    }
+
+    @Test
+    void likeWriteBufferTest() {
+        LikeWriteBuffer buffer = new LikeWriteBuffer(jdbcTemplate, transactionManager, ranking, likeMatrix,
+                eventDao, true, Duration.ofHours(1), 1000);
+        Film film = filmDao.createFilm(createFilmObject("Buffered"));
+        Film cancelled = filmDao.createFilm(createFilmObject("Cancelled"));
+        User user = userDao.createUser(createUserObject("Buffered liker"));
+
+        statementCounter.start();
+        assertThat(buffer.put(user.getId(), film.getId(), true)).isTrue();
+        assertThat(buffer.put(user.getId(), film.getId(), true)).isFalse();
+        assertThat(buffer.put(user.getId(), cancelled.getId(), true)).isTrue();
+        assertThat(buffer.put(user.getId(), cancelled.getId(), false)).isTrue();
+        assertThat(statementCounter.stop()).isZero();
+        assertThat(likeMatrix.contains(user.getId(), film.getId())).isTrue();
+        assertThat(ranking.findTop(null, null, Integer.MAX_VALUE))
+                .containsSubsequence(film.getId(), cancelled.getId());
+
+        buffer.flush();
+        assertThat(jdbcTemplate.queryForList("SELECT film_id FROM film_likes WHERE user_id = ?", Long.class,
+                user.getId())).containsExactly(film.getId());
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM film WHERE id = ?", Long.class,
+                film.getId())).isEqualTo(1L);
+        assertThat(eventDao.getFeedPage(user.getId(), Long.MAX_VALUE, 100)).extracting(Event::getOperation)
+                .containsExactly(Event.Operation.ADD, Event.Operation.ADD, Event.Operation.REMOVE);
+        likesDao.removeLike(user.getId(), film.getId());
+
+        User deleted = userDao.createUser(createUserObject("Deleted liker"));
+        buffer.put(deleted.getId(), film.getId(), true);
+        jdbcTemplate.update("DELETE FROM app_user WHERE id = ?", deleted.getId());
+        buffer.flush();
+        assertThat(likeMatrix.contains(deleted.getId(), film.getId())).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM event WHERE user_id = ?", Integer.class,
+                deleted.getId())).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM film WHERE id = ?", Long.class,
+                film.getId())).isZero();
+
+        LikeWriteBuffer broken = new LikeWriteBuffer(
+                new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:missing;IFEXISTS=TRUE")),
+                transactionManager, ranking, likeMatrix, eventDao, true, Duration.ofHours(1), 1000);
+        broken.put(user.getId(), film.getId(), true);
+        assertThatThrownBy(broken::flush).isInstanceOf(DataAccessException.class);
+        assertThat(likeMatrix.contains(user.getId(), film.getId())).isTrue();
+        // cancels the like queued again after the failed flush, so nothing is left to write
+        broken.put(user.getId(), film.getId(), false);
+        broken.flush();
+    }
+
+    @Test
+    void popularRankingFollowsFilmChangesTest() {
+        Genre comedy = genreDao.findById(1L).orElseThrow();
+        Genre drama = genreDao.findById(2L).orElseThrow();
+        Film film = createFilmObject("Ranked");
+        film.setReleaseDate(LocalDate.of(1999, 5, 5));
+        film.setGenres(Set.of(comedy));
+        film = filmDao.createFilm(film);
+        User user = userDao.createUser(createUserObject("Ranker"));
+        likesDao.addLike(user.getId(), film.getId());
+        assertThat(likesDao.getPopular(1L, 1999, 1)).containsExactly(film);
+
+        film.setGenres(Set.of(drama));
+        filmDao.updateFilm(film.getId(), film);
+        assertThat(likesDao.getPopular(1L, 1999, 10)).doesNotContain(film);
+        assertThat(likesDao.getPopular(2L, 1999, 1)).containsExactly(film);
+
+        ranking.removeFilm(film.getId());
+        User late = userDao.createUser(createUserObject("Late ranker"));
+        likesDao.addLike(late.getId(), film.getId());
+        assertThat(likesDao.getPopular(2L, 1999, 1)).containsExactly(film);
+
+        filmDao.deleteById(film.getId());
+        assertThat(likesDao.getPopular(2L, 1999, 10)).doesNotContain(film);
+    }
+
+    @Test
+    void recommendationTest() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            films.add(filmDao.createFilm(createFilmObject("Recommended " + i)));
+        }
+        User user = userDao.createUser(createUserObject("Reader"));
+        User similar = userDao.createUser(createUserObject("Similar"));
+        User stranger = userDao.createUser(createUserObject("Stranger"));
+        likesDao.addLike(user.getId(), films.get(0).getId());
+        likesDao.addLike(user.getId(), films.get(1).getId());
+        likesDao.addLike(similar.getId(), films.get(0).getId());
+        likesDao.addLike(similar.getId(), films.get(2).getId());
+        likesDao.addLike(stranger.getId(), films.get(3).getId());
+        assertThat(recommendationDao.findRecommendedFilmIds(user.getId())).containsExactly(films.get(2).getId());
+
+        likesDao.removeLike(similar.getId(), films.get(0).getId());
+        assertThat(recommendationDao.findRecommendedFilmIds(user.getId())).isEmpty();
+    }
+
+    @Test
+    void longHashSetTest() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long value = random.nextInt(500);
+            if (random.nextBoolean()) {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            } else {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            }
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+        assertThat(set.size()).isEqualTo(expected.size());
+        assertThat(set.toArray()).containsExactlyInAnyOrder(expected.stream().mapToLong(Long::longValue).toArray());
+    }
+
     @Test
     void getGenreById() {
         Optional<Genre> genreOptional = genreDao.findById(1L);
@@ -144,6 +837,15 @@ class FilmorateApplicationTests {
         return film;
     }
 
+    private Review createReviewObject(User author, Film film) {
+        Review review = new Review();
+        review.setContent("Review of " + film.getName());
+        review.setIsPositive(true);
+        review.setUserId(author.getId());
+        review.setFilmId(film.getId());
+        return review;
+    }
+
     private User createUserObject(String name) {
         User user = new User();
         user.setName(name);